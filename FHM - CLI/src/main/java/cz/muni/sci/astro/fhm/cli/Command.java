@@ -30,7 +30,9 @@ public enum Command {
     CONCATENATE,
     SHIFT,
     JD,
-    JD_KEYWORD;
+    JD_KEYWORD,
+    SAVE_STRATEGY,
+    RESERVE_CARDS;
 
     private static final String PARAM_INFO_P = "-p - optional param, if it is used, it means apply this filter to already filtered files";
     private static final String PARAM_INFO_U = "-u - optional param, if it is used than existing keyword will be overwritten instead of throwing error, for non unique header keywords (for example empty card) is this option ignored and they are added, not updated";
@@ -89,6 +91,10 @@ public enum Command {
                 return "[-u] keyword date_time";
             case JD_KEYWORD:
                 return "[-u] keyword source_keyword";
+            case SAVE_STRATEGY:
+                return "strategy";
+            case RESERVE_CARDS:
+                return "count";
             default:
                 return "";
         }
@@ -205,6 +211,12 @@ public enum Command {
                 result.add("keyword - to which keyword will be computed julian day stored");
                 result.add("source_keyword - from which keyword value will be computed julian day");
                 break;
+            case SAVE_STRATEGY:
+                result.add("strategy - in_place (headers are rewritten in original file, if they do not fit, file is saved atomically, default), move_data_units (like in_place, but if headers do not fit, data units are moved in original file, file cannot be recovered if moving fails), journaled (like in_place, but original headers are backed up in sidecar journal) or atomic (file is written to temporary file, which replaces original file)");
+                break;
+            case RESERVE_CARDS:
+                result.add("count - count of blank cards reserved before END, when header does not fit its blocks (one block has 36 cards), 0 means no reservation");
+                break;
         }
         return result;
     }
@@ -258,6 +270,10 @@ public enum Command {
                 return "Computes julian day from given date and time and stores it into card with given keyword in primary HDU";
             case JD_KEYWORD:
                 return "Computes julian day from value of source keyword and stores it into card with given keyword in primary HDU";
+            case SAVE_STRATEGY:
+                return "Sets strategy used for saving files after executing operations";
+            case RESERVE_CARDS:
+                return "Reserves blank cards in headers, so cards added later can be saved without moving data units";
             default:
                 return "";
         }
@@ -329,6 +345,10 @@ public enum Command {
                 return "(?:(JD)((?:(?! -u (?:(?:[\\S&&[^\"]]+)|(?:\"(?:[\\S &&[^\"]]|\\\\\")*\"))\\z)(?: -u)? (?:(?:[\\S&&[^\"]]+)|(?:\"(?:[\\S &&[^\"]]|\\\\\")*\"))){2}))";
             case JD_KEYWORD:
                 return "(?:(JD_KEYWORD)((?:(?! -u (?:(?:[\\S&&[^\"]]+)|(?:\"(?:[\\S &&[^\"]]|\\\\\")*\"))\\z)(?: -u)? (?:(?:[\\S&&[^\"]]+)|(?:\"(?:[\\S &&[^\"]]|\\\\\")*\"))){2}))";
+            case SAVE_STRATEGY:
+                return "(?:(SAVE_STRATEGY)( (?:IN_PLACE|MOVE_DATA_UNITS|JOURNALED|ATOMIC)))";
+            case RESERVE_CARDS:
+                return "(?:(RESERVE_CARDS)( \\d{1,9}))";
             default:
                 return "(?: XXX )";
         }
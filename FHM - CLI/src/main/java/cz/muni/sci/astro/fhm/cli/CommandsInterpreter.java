@@ -2,8 +2,10 @@ package cz.muni.sci.astro.fhm.cli;
 
 import cz.muni.sci.astro.fhm.core.MultipleOperationsRunner;
 import cz.muni.sci.astro.fits.FitsCard;
+import cz.muni.sci.astro.fits.FitsCardReader;
 import cz.muni.sci.astro.fits.FitsException;
 import cz.muni.sci.astro.fits.FitsFile;
+import cz.muni.sci.astro.fits.FitsSaveStrategy;
 
 import java.io.BufferedReader;
 import java.io.File;
@@ -11,7 +13,10 @@ import java.io.FileReader;
 import java.io.IOException;
 import java.nio.file.*;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 import java.util.StringJoiner;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -275,6 +280,16 @@ public class CommandsInterpreter {
                     matcherParam.find();
                     operationsRunner.jd(filteredFiles, keyword, getParam(), null, modifyParam);
                     break;
+                case SAVE_STRATEGY:
+                    matcherParam.find();
+                    operationsRunner.setSaveStrategy(FitsSaveStrategy.valueOf(getParam().toUpperCase()));
+                    printOK("Files will be saved with strategy: ", operationsRunner.getSaveStrategy().toString(), ".");
+                    break;
+                case RESERVE_CARDS:
+                    matcherParam.find();
+                    operationsRunner.setReservedCards(Integer.parseInt(getParam()));
+                    printOK("Count of reserved cards in headers: ", Integer.toString(operationsRunner.getReservedCards()), ".");
+                    break;
             }
             printOK();
         }
@@ -291,7 +306,7 @@ public class CommandsInterpreter {
         if (filename.indexOf(".\\") == 0) {
             filename = filename.substring(2);
         }
-        try (FitsFile ignored = new FitsFile(new File(filename))) {
+        try (FitsFile ignored = FitsFile.openReadOnly(new File(filename), false)) {
             if (!openedFiles.contains(filename)) {
                 openedFiles.add(filename);
                 filteredFiles.add(filename);
@@ -375,19 +390,19 @@ public class CommandsInterpreter {
             files.addAll(openedFiles);
         }
         filteredFiles.clear();
+        Set<String> keywordsSet = new HashSet<>(keywords);
         for (String filename : files) {
-            try (FitsFile fitsFile = new FitsFile(new File(filename))) {
-                boolean containsAll = true;
-                for (String keyword : keywords) {
-                    if (fitsFile.getCardsWithKeyword(keyword).isEmpty()) {
-                        containsAll = false;
-                        break;
-                    }
-                }
-                if (containsAll) {
+            File file = new File(filename);
+            Set<String> missingKeywords = new HashSet<>(keywordsSet);
+            try {
+                FitsCardReader.read(file, keywordsSet, (hduIndex, card) -> { // reading stops, when all keywords are found
+                    missingKeywords.remove(card.getKeywordName());
+                    return !missingKeywords.isEmpty();
+                });
+                if (missingKeywords.isEmpty()) {
                     filteredFiles.add(filename);
                 } else {
-                    printOK("File \"", fitsFile.getFilename(), "\" does not match filter.");
+                    printOK("File \"", file.getName(), "\" does not match filter.");
                 }
             } catch (FitsException ignored) {
             } // Check for Fits file has been already done
@@ -412,7 +427,7 @@ public class CommandsInterpreter {
         }
         filteredFiles.clear();
         for (String filename : files) {
-            try (FitsFile fitsFile = new FitsFile(new File(filename))) {
+            try (FitsFile fitsFile = FitsFile.open(new File(filename), Collections.singleton(keyword))) {
                 List<FitsCard> cards = fitsFile.getCardsWithKeyword(keyword);
                 if (!cards.isEmpty() && cards.get(0).getRValueString().equals(rValue)) {
                     filteredFiles.add(filename);
@@ -442,7 +457,7 @@ public class CommandsInterpreter {
         }
         filteredFiles.clear();
         for (String filename : files) {
-            try (FitsFile fitsFile = new FitsFile(new File(filename))) {
+            try (FitsFile fitsFile = FitsFile.open(new File(filename), Collections.singleton(keyword))) {
                 List<FitsCard> cards = fitsFile.getCardsWithKeyword(keyword);
                 if (!cards.isEmpty() && cards.get(0).getIValueString().equals(iValue)) {
                     filteredFiles.add(filename);
@@ -521,7 +521,7 @@ public class MultipleEditController {
         FitsCard card = new FitsCard();
         card.setKeyword("CONCAT");
         card.setRValue(textFieldConcatenateString.getText());
-        if (!card.validate().isEmpty()) {
+        if (!card.isValid()) {
             GUIHelpers.showAlert(AlertType.ERROR, "Concatenating", "Value " + textFieldConcatenateString.getText() + " contains characters forbidden by FITS standard.", "");
             return;
         }
@@ -107,7 +107,7 @@ public class SelectFiles1Controller {
                     }
                     updateTitle(filename);
                     String path = dir + '/' + filename;
-                    try (FitsFile ignored = new FitsFile(new File(path))) {
+                    try (FitsFile ignored = FitsFile.openReadOnly(new File(path), false)) {
                         files.add(path);
                     } catch (FitsException exc) {
                         if (isCancelled()) {
@@ -115,7 +115,7 @@ public class SelectFiles2Controller {
                     }
                     File fFile = new File(name);
                     updateTitle(fFile.getName());
-                    try (FitsFile file = new FitsFile(fFile)) {
+                    try (FitsFile file = FitsFile.openReadOnly(fFile, false)) {
                         boolean accepted = true;
                         for (int i = 0; i < file.getCountHDUs(); i++) {
                             engine = new ScriptEngineManager().getEngineByName("JavaScript");
@@ -2,8 +2,10 @@ package cz.muni.sci.astro.fhm.core;
 
 import cz.muni.sci.astro.fits.FitsException;
 import cz.muni.sci.astro.fits.FitsFile;
+import cz.muni.sci.astro.fits.FitsSaveStrategy;
 
 import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
@@ -19,6 +21,8 @@ public class MultipleOperationsRunner {
     private PrintOutputMethod printerError;
     private List<Operation> operations;
     private List<List<String>> filesForOperations;
+    private FitsSaveStrategy saveStrategy;
+    private int reservedCards;
 
     /**
      * Creates new instances of this class
@@ -31,6 +35,51 @@ public class MultipleOperationsRunner {
         this.printerError = printerError;
         operations = new ArrayList<>();
         filesForOperations = new ArrayList<>();
+        saveStrategy = FitsSaveStrategy.IN_PLACE;
+    }
+
+    /**
+     * Returns strategy used for saving files
+     *
+     * @return strategy used for saving files
+     */
+    public FitsSaveStrategy getSaveStrategy() {
+        return saveStrategy;
+    }
+
+    /**
+     * Sets strategy used for saving files
+     *
+     * @param saveStrategy strategy used for saving files, cannot be null
+     * @throws NullPointerException if saveStrategy is null
+     */
+    public void setSaveStrategy(FitsSaveStrategy saveStrategy) {
+        if (saveStrategy == null) {
+            throw new NullPointerException("saveStrategy is null");
+        }
+        this.saveStrategy = saveStrategy;
+    }
+
+    /**
+     * Returns count of blank cards reserved in headers, which do not fit their blocks while saving files
+     *
+     * @return count of reserved cards
+     */
+    public int getReservedCards() {
+        return reservedCards;
+    }
+
+    /**
+     * Sets count of blank cards reserved in headers, which do not fit their blocks while saving files (see FitsFile.setReservedCards)
+     *
+     * @param reservedCards count of reserved cards, 0 means no reservation
+     * @throws IllegalArgumentException if reservedCards is negative
+     */
+    public void setReservedCards(int reservedCards) {
+        if (reservedCards < 0) {
+            throw new IllegalArgumentException("reservedCards is negative");
+        }
+        this.reservedCards = reservedCards;
     }
 
     /**
@@ -290,6 +339,14 @@ public class MultipleOperationsRunner {
             if (updateTitle != null) {
                 updateTitle.done(file.getName());
             }
+            try {
+                if (FitsFile.restoreHeaders(file)) {
+                    printerOK.print("Headers of file \"", file.getName(), "\" were restored from journal of failed saving.");
+                }
+            } catch (IOException exc) {
+                printerError.print("Headers of file \"", file.getName(), "\" cannot be restored from journal of failed saving. Details: ", exc.getMessage(), ".");
+                continue;
+            }
             FitsFile fitsFile;
             try {
                 fitsFile = new FitsFile(file);
@@ -304,10 +361,17 @@ public class MultipleOperationsRunner {
             }
             List<String> problems = fitsFile.checkReadyToSave();
             if (problems.isEmpty()) {
-                if (!fitsFile.saveFile()) {
+                fitsFile.setReservedCards(reservedCards);
+                if (!fitsFile.saveFile(saveStrategy)) {
                     printerError.print("Saving file \"", fitsFile.getFilename(), "\" failed.");
+                    if (fitsFile.isDamaged()) {
+                        printerError.print("File \"", fitsFile.getFilename(), "\" was damaged while moving data units and it cannot be recovered.");
+                    }
                 } else {
                     printerOK.print("File \"", fitsFile.getFilename(), "\" was successfully saved.");
+                    if (fitsFile.hasJournal()) {
+                        printerError.print("Journal of file \"", fitsFile.getFilename(), "\" cannot be deleted after saving, it is removed when file is processed next time.");
+                    }
                 }
             } else {
                 printerError.print("Cannot save file \"", fitsFile.getFilename(), "\" due errors:");
@@ -16,25 +16,30 @@ public class FitsCard {
     private static final String LOGICAL_STRING_TRUE = "T";
     private static final char LOGICAL_CHAR_FALSE = 'F';
     private static final char LOGICAL_CHAR_TRUE = 'T';
-    private static final int RVALUE_START_INDEX = 10;
+    private static final int RVALUE_START_INDEX = FitsLongStringCodec.VALUE_START_INDEX;
     private static final int IVALUE_START_INDEX = 30;
     private static final int COMMENT_START_INDEX = 50;
     private static final int VALUE_LENGTH = IVALUE_START_INDEX - RVALUE_START_INDEX;
-    private static final int CONTINUE_VALUE_LENGTH = FitsFile.CARD_LENGTH - RVALUE_START_INDEX;
     private static final String COMMENT_SEPARATOR = " / ";
     private static final String LITERAL_MARK = "'";
-    private static final String CONTINUED_VALUE_END_MARK = "&";
-    private static final int VALUE_LENGTH_RESERVED = 2 * LITERAL_MARK.length() + CONTINUED_VALUE_END_MARK.length();
     private static final String TRAIL_END = "\\s+$";
-    private static final String CUSTOM_KEYWORD = "CUSTOMKW";
+    private static final int[] BITPIX_VALUES = {-64, -32, 8, 16, 32};
     private FitsKeyword keyword;
-    private Object rValue;
-    private Object iValue;
+    private FitsKeywordsDataType rValueType;
+    private long rValueBits;
+    private String rValueLiteral;
+    private FitsKeywordsDataType iValueType;
+    private long iValueBits;
+    private String iValueLiteral;
     private int nParam;
     private String comment;
     private String customName;
     private FitsCardDateValue dateValue;
+    private boolean dateValueComputed;
     private int countContinue;
+    private Boolean valid;
+    private String rawEntry;
+    private FitsCardList owner;
 
     /**
      * Creates new empty card
@@ -57,177 +62,259 @@ public class FitsCard {
         createNewFormEntry(entry);
     }
 
+    /**
+     * Creates new card with given keyword and without any value
+     *
+     * @param keyword keyword of card
+     */
+    private FitsCard(FitsKeyword keyword) {
+        this.keyword = keyword;
+        nParam = -1;
+    }
+
+    /**
+     * Returns name of keyword, which would have card created from given entry (value of entry is not processed)
+     *
+     * @param keywordEntry tokenizer set to the beginning of entry containing keyword name (at least 9 characters long)
+     * @return name of keyword, which would have card created from given entry
+     */
+    static String getKeywordName(FitsCardTokenizer keywordEntry) {
+        FitsCard card = new FitsCard(FitsKeyword.EMPTY);
+        card.setKeyword(keywordEntry);
+        return card.getKeywordName();
+    }
+
+    /**
+     * Creates new card from given tokenizer of raw record
+     *
+     * @param entry tokenizer set to the beginning of record (80 bytes long)
+     * @throws FitsCardBadFormatException if entry has bad format
+     */
+    FitsCard(FitsCardTokenizer entry) throws FitsCardBadFormatException {
+        createNewFormEntry(entry);
+    }
+
     /**
      * Creates new card from given entry
      *
      * @param entry Card String (80 bytes long)
      */
     private void createNewFormEntry(String entry) throws FitsCardBadFormatException {
+        createNewFormEntry(new FitsCardTokenizer(entry));
+    }
+
+    /**
+     * Creates new card from given entry
+     *
+     * @param entry tokenizer set to the beginning of record (80 bytes long)
+     */
+    private void createNewFormEntry(FitsCardTokenizer entry) throws FitsCardBadFormatException {
         countContinue = 0;
-        setKeyword(entry.substring(0, FitsFile.KEYWORD_LENGTH + 1));
-        FitsCard customHelper;
-        FitsKeywordsDataType customHelperDataType;
+        setKeyword(entry);
+        processEntry(entry);
+        dateValueComputed = false;
+        rawEntry = entry.length() == FitsFile.CARD_LENGTH ? entry.rawRecord() : null;
+    }
+
+    /**
+     * Process Card entry - values and comment according to data type of keyword
+     *
+     * @param entry tokenizer set to the beginning of record (80 bytes long)
+     * @throws FitsCardBadFormatException if entry has bad format
+     */
+    private void processEntry(FitsCardTokenizer entry) throws FitsCardBadFormatException {
         switch (keyword.getType()) {
             case LOGICAL:
-                try {
-                    processLogical(entry);
-                } catch (FitsCardBadFormatException exc) { // tries to find logical value in literal type
-                    customHelper = new FitsCard(CUSTOM_KEYWORD + entry.substring(FitsFile.KEYWORD_LENGTH));
-                    customHelperDataType = customHelper.getDataTypeOfValue(customHelper.getRValueString());
-                    if (customHelperDataType == FitsKeywordsDataType.LOGICAL) {
-                        setRValue(customHelper.getRValueString());
-                        setIValue(customHelper.getIValueString());
-                        setComment(customHelper.getComment());
-                    } else {
-                        throw exc;
-                    }
-                }
-                break;
             case INT:
-                try {
-                    processInt(entry);
-                } catch (FitsCardBadFormatException exc) { // tries to find int value in literal type
-                    customHelper = new FitsCard(CUSTOM_KEYWORD + entry.substring(FitsFile.KEYWORD_LENGTH));
-                    customHelperDataType = customHelper.getDataTypeOfValue(customHelper.getRValueString());
-                    if (customHelperDataType == FitsKeywordsDataType.INT) {
-                        setRValue(customHelper.getRValueString());
-                        setIValue(customHelper.getIValueString());
-                        setComment(customHelper.getComment());
-                    } else {
-                        throw exc;
-                    }
-                }
-                break;
             case REAL:
-                try {
-                    processReal(entry);
-                } catch (FitsCardBadFormatException exc) { // tries to find real value in literal type
-                    customHelper = new FitsCard(CUSTOM_KEYWORD + entry.substring(FitsFile.KEYWORD_LENGTH));
-                    customHelperDataType = customHelper.getDataTypeOfValue(customHelper.getRValueString());
-                    if (customHelperDataType == FitsKeywordsDataType.REAL) {
-                        setRValue(customHelper.getRValueString());
-                        setIValue(customHelper.getIValueString());
-                        setComment(customHelper.getComment());
-                    } else if (customHelperDataType == FitsKeywordsDataType.INT) {
-                        setRValue(customHelper.getRValueString() + ".0");
-                        setComment(customHelper.getComment());
-                        if (customHelper.getDataTypeOfValue(customHelper.getIValueString()) == FitsKeywordsDataType.INT) {
-                            setIValue(customHelper.getIValueString() + ".0");
-                        } else {
-                            setIValue(customHelper.getRValueString());
-                        }
-                    } else {
-                        throw exc;
-                    }
-                }
+                processTypedValue(entry, keyword.getType());
                 break;
             case LITERAL:
-                if (entry.charAt(RVALUE_START_INDEX) != '\'' || !entry.substring(RVALUE_START_INDEX + 1).contains(LITERAL_MARK)) {
+                if (entry.charAt(RVALUE_START_INDEX) != '\'' || entry.indexOf('\'', RVALUE_START_INDEX + 1) == -1) {
                     throw new FitsCardBadFormatException("Bad format of fits card (keyword " + keyword.toString().replace("CUSTOM", customName) + " is literal type and value musts start and end with apostrophe ')");
                 }
                 processLiteral(entry);
                 break;
             case CUSTOM:
-                if (entry.charAt(RVALUE_START_INDEX) == '\'' && entry.substring(RVALUE_START_INDEX + 1).contains(LITERAL_MARK)) {
+                FitsKeywordsDataType valueDataType = FitsNumberParser.getType(entry, RVALUE_START_INDEX, IVALUE_START_INDEX);
+                if (entry.charAt(RVALUE_START_INDEX) == '\'' && entry.indexOf('\'', RVALUE_START_INDEX + 1) != -1) {
                     processLiteral(entry);
-                } else if (entry.substring(RVALUE_START_INDEX, IVALUE_START_INDEX).contains(".")) {
-                    processReal(entry);
-                } else if (entry.charAt(IVALUE_START_INDEX - 1) == LOGICAL_CHAR_TRUE || entry.charAt(IVALUE_START_INDEX - 1) == LOGICAL_CHAR_FALSE) {
-                    processLogical(entry);
-                } else {
-                    processInt(entry);
+                } else if (!processComplex(entry, FitsKeywordsDataType.CUSTOM)) {
+                    if (valueDataType == FitsKeywordsDataType.REAL || (valueDataType == null && entry.indexOf('.', RVALUE_START_INDEX, IVALUE_START_INDEX) != -1)) {
+                        processReal(entry);
+                    } else if (valueDataType == null && (entry.charAt(IVALUE_START_INDEX - 1) == LOGICAL_CHAR_TRUE || entry.charAt(IVALUE_START_INDEX - 1) == LOGICAL_CHAR_FALSE)) {
+                        processLogical(entry);
+                    } else {
+                        processInt(entry);
+                    }
                 }
                 break;
             case NONE:
                 if (keyword == FitsKeyword.COMMENT || keyword == FitsKeyword.HISTORY) {
-                    rValue = entry.substring(FitsFile.KEYWORD_LENGTH, FitsFile.CARD_LENGTH);
+                    setRValue(FitsKeywordsDataType.LITERAL, 0, entry.substring(FitsFile.KEYWORD_LENGTH, FitsFile.CARD_LENGTH));
                 } else if (keyword == FitsKeyword.EMPTY) {
-                    setComment(entry.substring(entry.indexOf("/ ", FitsFile.KEYWORD_LENGTH) + 2));
+                    int commentStart = entry.indexOf('/', ' ', FitsFile.KEYWORD_LENGTH) + 2;
+                    comment = entry.substring(commentStart, entry.stripTrailingWhitespaces(commentStart, entry.length()));
                 } else if (keyword == FitsKeyword.CONTINUE) {
                     int begin_value_index;
                     int end_value_index;
-                    begin_value_index = entry.indexOf(LITERAL_MARK, RVALUE_START_INDEX);
+                    begin_value_index = entry.indexOf('\'', RVALUE_START_INDEX);
                     if (begin_value_index == -1) {
                         throw new FitsCardBadFormatException("Bad format of fits card (keyword CONTINUE value musts start with apostrophe ')");
                     }
-                    end_value_index = begin_value_index;
-                    while (true) {
-                        end_value_index = entry.indexOf(LITERAL_MARK, end_value_index + 1);
-                        if (end_value_index != -1 && end_value_index < entry.length() - 1 && entry.charAt(end_value_index + 1) == '\'') {
-                            end_value_index++;
-                        } else {
-                            break;
-                        }
-                    }
+                    end_value_index = entry.indexOfLiteralEnd(begin_value_index);
                     if (end_value_index == -1) {
                         throw new FitsCardBadFormatException("Bad format of fits card (keyword CONTINUE value musts end with apostrophe ')");
                     }
-                    rValue = entry.substring(begin_value_index + 1, end_value_index);
+                    setRValue(FitsKeywordsDataType.LITERAL, 0, entry.substring(begin_value_index + 1, end_value_index));
                     processComment(entry, end_value_index);
                 }
                 break;
         }
-        computeDateValue();
+    }
+
+    /**
+     * Process Card entry - value of keyword with given data type
+     * Value is expected in fixed format, but if it is not there, it can be written as literal (for example '42' for integer)
+     * Numbers can be written as complex value in parentheses too
+     *
+     * @param entry    tokenizer set to the beginning of record (80 bytes long)
+     * @param dataType data type of keyword
+     * @throws FitsCardBadFormatException if entry has bad format or entry does not contain value of given data type
+     */
+    private void processTypedValue(FitsCardTokenizer entry, FitsKeywordsDataType dataType) throws FitsCardBadFormatException {
+        if (processComplex(entry, dataType)) {
+            return;
+        }
+        if (!isFixedValue(entry, dataType) && processLiteralTypedValue(entry, dataType)) {
+            return;
+        }
+        switch (dataType) {
+            case LOGICAL:
+                processLogical(entry);
+                break;
+            case INT:
+                processInt(entry);
+                break;
+            case REAL:
+                processReal(entry);
+                break;
+        }
+    }
+
+    /**
+     * Checks if entry contains value of given data type in fixed format
+     *
+     * @param entry    tokenizer set to the beginning of record (80 bytes long)
+     * @param dataType data type of value
+     * @return true if entry contains value of given data type in fixed format, otherwise false
+     */
+    private boolean isFixedValue(FitsCardTokenizer entry, FitsKeywordsDataType dataType) {
+        boolean hasIValue = hasFixedIValue(entry);
+        switch (dataType) {
+            case LOGICAL:
+                return entry.charAt(IVALUE_START_INDEX - 1) == LOGICAL_CHAR_TRUE || entry.charAt(IVALUE_START_INDEX - 1) == LOGICAL_CHAR_FALSE;
+            case INT:
+                return FitsNumberParser.getType(entry, RVALUE_START_INDEX, IVALUE_START_INDEX) == FitsKeywordsDataType.INT
+                        && (!hasIValue || FitsNumberParser.getType(entry, IVALUE_START_INDEX, COMMENT_START_INDEX) == FitsKeywordsDataType.INT);
+            case REAL:
+                return FitsNumberParser.getType(entry, RVALUE_START_INDEX, IVALUE_START_INDEX) != null
+                        && (!hasIValue || FitsNumberParser.getType(entry, IVALUE_START_INDEX, COMMENT_START_INDEX) != null);
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Process Card entry - value of given data type written as literal (integer value is accepted for real data type too)
+     *
+     * @param entry    tokenizer set to the beginning of record (80 bytes long)
+     * @param dataType data type of value
+     * @return true if entry contains value of given data type written as literal, otherwise false (card is not changed)
+     */
+    private boolean processLiteralTypedValue(FitsCardTokenizer entry, FitsKeywordsDataType dataType) {
+        if (entry.charAt(RVALUE_START_INDEX) != '\'') {
+            return false;
+        }
+        int end_value_index = entry.indexOfLiteralEnd(RVALUE_START_INDEX);
+        if (end_value_index == -1) {
+            return false;
+        }
+        int begin = entry.trimStart(RVALUE_START_INDEX + 1, end_value_index);
+        int end = entry.trimEnd(begin, end_value_index);
+        switch (dataType) {
+            case LOGICAL:
+                if (end - begin != 1 || (entry.charAt(begin) != LOGICAL_CHAR_TRUE && entry.charAt(begin) != LOGICAL_CHAR_FALSE)) {
+                    return false;
+                }
+                setRValue(FitsKeywordsDataType.LOGICAL, entry.charAt(begin) == LOGICAL_CHAR_TRUE ? 1 : 0, null);
+                break;
+            case INT:
+                if (FitsNumberParser.getType(entry, begin, end) != FitsKeywordsDataType.INT) {
+                    return false;
+                }
+                setRValue(FitsKeywordsDataType.INT, FitsNumberParser.parseLong(entry, begin, end), null);
+                break;
+            case REAL:
+                if (FitsNumberParser.getType(entry, begin, end) == null) {
+                    return false;
+                }
+                setRValue(FitsKeywordsDataType.REAL, Double.doubleToRawLongBits(FitsNumberParser.parseDouble(entry, begin, end)), null);
+                break;
+            default:
+                return false;
+        }
+        setIValue(null, 0, null);
+        processComment(entry, end_value_index + 1);
+        return true;
     }
 
     /**
      * Process Card entry - Integer data type
      *
-     * @param entry Card String (80 bytes long)
+     * @param entry tokenizer set to the beginning of record (80 bytes long)
      * @throws FitsCardBadFormatException if entry has bad format or entry does not contain Integer data type
      */
-    private void processInt(String entry) throws FitsCardBadFormatException {
-        try {
-            rValue = Integer.parseInt(entry.substring(RVALUE_START_INDEX, IVALUE_START_INDEX).trim());
-            if (!entry.substring(IVALUE_START_INDEX, COMMENT_START_INDEX).trim().isEmpty() && !entry.substring(IVALUE_START_INDEX, COMMENT_START_INDEX).contains("/")) {
-                iValue = Integer.parseInt(entry.substring(IVALUE_START_INDEX, COMMENT_START_INDEX).trim());
-            }
-            processComment(entry, IVALUE_START_INDEX);
-        } catch (NumberFormatException exc) {
-            String value;
-            if (rValue != null) {
-                value = entry.substring(IVALUE_START_INDEX, COMMENT_START_INDEX).trim();
-            } else {
-                value = entry.substring(RVALUE_START_INDEX, IVALUE_START_INDEX).trim();
+    private void processInt(FitsCardTokenizer entry) throws FitsCardBadFormatException {
+        if (FitsNumberParser.getType(entry, RVALUE_START_INDEX, IVALUE_START_INDEX) != FitsKeywordsDataType.INT) {
+            throw new FitsCardBadFormatException("Bad format of fits card (keyword " + getKeywordName() + " is integer, but \"" + entry.trimmedSubstring(RVALUE_START_INDEX, IVALUE_START_INDEX) + "\" is not integer)");
+        }
+        setRValue(FitsKeywordsDataType.INT, FitsNumberParser.parseLong(entry, RVALUE_START_INDEX, IVALUE_START_INDEX), null);
+        if (hasFixedIValue(entry)) {
+            if (FitsNumberParser.getType(entry, IVALUE_START_INDEX, COMMENT_START_INDEX) != FitsKeywordsDataType.INT) {
+                throw new FitsCardBadFormatException("Bad format of fits card (keyword " + getKeywordName() + " is integer, but \"" + entry.trimmedSubstring(IVALUE_START_INDEX, COMMENT_START_INDEX) + "\" is not integer)");
             }
-            throw new FitsCardBadFormatException("Bad format of fits card (keyword " + getKeywordName() + " is integer, but \"" + value + "\" is not integer)", exc);
+            setIValue(FitsKeywordsDataType.INT, FitsNumberParser.parseLong(entry, IVALUE_START_INDEX, COMMENT_START_INDEX), null);
         }
+        processComment(entry, IVALUE_START_INDEX);
     }
 
     /**
      * Process Card entry - Literal data type
      *
-     * @param entry Card String (80 bytes long)
+     * @param entry tokenizer set to the beginning of record (80 bytes long)
      * @throws FitsCardBadFormatException if entry has bad format
      */
-    private void processLiteral(String entry) throws FitsCardBadFormatException {
-        int end_value_index = RVALUE_START_INDEX;
-        while (true) {
-            end_value_index = entry.indexOf(LITERAL_MARK, end_value_index + 1);
-            if (end_value_index != -1 && end_value_index < entry.length() - 1 && entry.charAt(end_value_index + 1) == '\'') {
-                end_value_index++;
-            } else {
-                break;
-            }
-        }
+    private void processLiteral(FitsCardTokenizer entry) throws FitsCardBadFormatException {
+        int end_value_index = entry.indexOfLiteralEnd(RVALUE_START_INDEX);
         if (end_value_index == -1) {
             throw new FitsCardBadFormatException("Bad format of fits card (keyword " + getKeywordName() + " is literal type and value musts end with apostrophe ')");
         }
-        rValue = entry.substring(RVALUE_START_INDEX + 1, end_value_index).replaceAll(TRAIL_END, "");
+        setRValue(FitsKeywordsDataType.LITERAL, 0, entry.substring(RVALUE_START_INDEX + 1, entry.stripTrailingWhitespaces(RVALUE_START_INDEX + 1, end_value_index)));
         processComment(entry, end_value_index + 1);
     }
 
     /**
      * Process Card entry - Logical data type
      *
-     * @param entry Card String (80 bytes long)
+     * @param entry tokenizer set to the beginning of record (80 bytes long)
      * @throws FitsCardBadFormatException if entry has bad format
      */
-    private void processLogical(String entry) throws FitsCardBadFormatException {
+    private void processLogical(FitsCardTokenizer entry) throws FitsCardBadFormatException {
         if (entry.charAt(IVALUE_START_INDEX - 1) == LOGICAL_CHAR_TRUE) {
-            rValue = true;
+            setRValue(FitsKeywordsDataType.LOGICAL, 1, null);
         } else if (entry.charAt(IVALUE_START_INDEX - 1) == LOGICAL_CHAR_FALSE) {
-            rValue = false;
+            setRValue(FitsKeywordsDataType.LOGICAL, 0, null);
         } else {
             throw new FitsCardBadFormatException("Bad format of fits card (keyword " + getKeywordName() + " is logical type, valid values are T or F, not '" + entry.charAt(IVALUE_START_INDEX - 1) + "')");
         }
@@ -237,53 +324,173 @@ public class FitsCard {
     /**
      * Process Card entry - Real data type
      *
-     * @param entry Card String (80 bytes long)
+     * @param entry tokenizer set to the beginning of record (80 bytes long)
      * @throws FitsCardBadFormatException if entry has bad format or entry does not contain Real data type
      */
-    private void processReal(String entry) throws FitsCardBadFormatException {
-        try {
-            rValue = Double.parseDouble(entry.substring(RVALUE_START_INDEX, IVALUE_START_INDEX).trim());
-            if (!entry.substring(IVALUE_START_INDEX, COMMENT_START_INDEX).trim().isEmpty() && !entry.substring(IVALUE_START_INDEX, COMMENT_START_INDEX).contains("/")) {
-                iValue = Double.parseDouble(entry.substring(IVALUE_START_INDEX, COMMENT_START_INDEX).trim());
-            }
-            processComment(entry, IVALUE_START_INDEX);
-        } catch (NumberFormatException exc) {
-            String value;
-            if (rValue != null) {
-                value = entry.substring(IVALUE_START_INDEX, COMMENT_START_INDEX).trim();
-            } else {
-                value = entry.substring(RVALUE_START_INDEX, IVALUE_START_INDEX).trim();
+    private void processReal(FitsCardTokenizer entry) throws FitsCardBadFormatException {
+        if (FitsNumberParser.getType(entry, RVALUE_START_INDEX, IVALUE_START_INDEX) == null) {
+            throw new FitsCardBadFormatException("Bad format of fits card (keyword " + getKeywordName() + " is real number, but \"" + entry.trimmedSubstring(RVALUE_START_INDEX, IVALUE_START_INDEX) + "\" is not real number)");
+        }
+        setRValue(FitsKeywordsDataType.REAL, Double.doubleToRawLongBits(FitsNumberParser.parseDouble(entry, RVALUE_START_INDEX, IVALUE_START_INDEX)), null);
+        if (hasFixedIValue(entry)) {
+            if (FitsNumberParser.getType(entry, IVALUE_START_INDEX, COMMENT_START_INDEX) == null) {
+                throw new FitsCardBadFormatException("Bad format of fits card (keyword " + getKeywordName() + " is real number, but \"" + entry.trimmedSubstring(IVALUE_START_INDEX, COMMENT_START_INDEX) + "\" is not real number)");
             }
-            throw new FitsCardBadFormatException("Bad format of fits card (keyword " + getKeywordName() + " is real number, but \"" + value + "\" is not real number)", exc);
+            setIValue(FitsKeywordsDataType.REAL, Double.doubleToRawLongBits(FitsNumberParser.parseDouble(entry, IVALUE_START_INDEX, COMMENT_START_INDEX)), null);
         }
+        processComment(entry, IVALUE_START_INDEX);
     }
 
     /**
-     * Returns processed value (for example for "T" returns boolean true)
+     * Process Card entry - complex value written in parentheses, for example (1.5, -2.0)
      *
-     * @param value string value to process
-     * @return processed value (for example for "T" returns boolean true)
+     * @param entry    tokenizer set to the beginning of record (80 bytes long)
+     * @param dataType data type of keyword (for CUSTOM data type is taken from value)
+     * @return true if entry contains complex value of given data type in parentheses, otherwise false (card is not changed)
      */
-    private Object processValue(String value) {
-        try {
-            return Integer.parseInt(value);
-        } catch (NumberFormatException ignored) {
+    private boolean processComplex(FitsCardTokenizer entry, FitsKeywordsDataType dataType) {
+        if (dataType != FitsKeywordsDataType.INT && dataType != FitsKeywordsDataType.REAL && dataType != FitsKeywordsDataType.CUSTOM) {
+            return false;
         }
-        try {
-            String valueWithoutFD = value.trim().replaceAll("f|F|d|D", "s"); // Not parse values like 1D as number, but as String
-            return Double.parseDouble(valueWithoutFD);
-        } catch (NumberFormatException ignored) {
+        int begin = entry.trimStart(RVALUE_START_INDEX, entry.length());
+        if (begin == entry.length() || entry.charAt(begin) != '(') {
+            return false;
         }
-        switch (value) {
-            case LOGICAL_STRING_TRUE:
-                return true;
-            case LOGICAL_STRING_FALSE:
-                return false;
+        int end = entry.indexOf(')', begin + 1);
+        int separator = end == -1 ? -1 : entry.indexOf(',', begin + 1, end);
+        if (separator == -1) {
+            return false;
+        }
+        FitsKeywordsDataType realDataType = FitsNumberParser.getType(entry, begin + 1, separator);
+        FitsKeywordsDataType imaginaryDataType = FitsNumberParser.getType(entry, separator + 1, end);
+        if (realDataType == null || imaginaryDataType == null) {
+            return false;
+        }
+        boolean integer = realDataType == FitsKeywordsDataType.INT && imaginaryDataType == FitsKeywordsDataType.INT;
+        if (dataType == FitsKeywordsDataType.INT && !integer) {
+            return false;
+        }
+        if (dataType == FitsKeywordsDataType.INT || (dataType == FitsKeywordsDataType.CUSTOM && integer)) {
+            setRValue(FitsKeywordsDataType.INT, FitsNumberParser.parseLong(entry, begin + 1, separator), null);
+            setIValue(FitsKeywordsDataType.INT, FitsNumberParser.parseLong(entry, separator + 1, end), null);
+        } else {
+            setRValue(FitsKeywordsDataType.REAL, Double.doubleToRawLongBits(FitsNumberParser.parseDouble(entry, begin + 1, separator)), null);
+            setIValue(FitsKeywordsDataType.REAL, Double.doubleToRawLongBits(FitsNumberParser.parseDouble(entry, separator + 1, end)), null);
+        }
+        processComment(entry, end + 1);
+        return true;
+    }
+
+    /**
+     * Checks if entry contains imaginary value in fixed format (columns 31-50 are not blank and they do not contain comment)
+     *
+     * @param entry tokenizer set to the beginning of record (80 bytes long)
+     * @return true if entry contains imaginary value in fixed format, otherwise false
+     */
+    private boolean hasFixedIValue(FitsCardTokenizer entry) {
+        return !entry.isBlank(IVALUE_START_INDEX, COMMENT_START_INDEX) && entry.indexOf('/', IVALUE_START_INDEX, COMMENT_START_INDEX) == -1;
+    }
+
+    /**
+     * Returns bits of processed value (for example for "T" returns 1 as logical true)
+     *
+     * @param value    string value to process
+     * @param dataType data type of given value (see getDataTypeOfValue)
+     * @return integer value, bits of real number or 1 for logical true, 0 for literal
+     */
+    private static long processValueBits(String value, FitsKeywordsDataType dataType) {
+        FitsCardTokenizer tokenizer;
+        switch (dataType) {
+            case INT:
+                tokenizer = new FitsCardTokenizer(value);
+                return FitsNumberParser.parseLong(tokenizer, 0, tokenizer.length());
+            case REAL:
+                tokenizer = new FitsCardTokenizer(value);
+                return Double.doubleToRawLongBits(FitsNumberParser.parseDouble(tokenizer, 0, tokenizer.length()));
+            case LOGICAL:
+                return value.equals(LOGICAL_STRING_TRUE) ? 1 : 0;
+            default:
+                return 0;
+        }
+    }
+
+    /**
+     * Returns string representation of value stored in given data type and bits
+     *
+     * @param dataType data type of value, null if there is no value
+     * @param bits     integer value, bits of real number or 1 for logical true
+     * @param literal  literal value
+     * @return string representation of value, empty string if there is no value
+     */
+    private static String getValueString(FitsKeywordsDataType dataType, long bits, String literal) {
+        if (dataType == null) {
+            return "";
+        }
+        switch (dataType) {
+            case INT:
+                return Long.toString(bits);
+            case REAL:
+                return Double.toString(Double.longBitsToDouble(bits));
+            case LOGICAL:
+                return bits != 0 ? LOGICAL_STRING_TRUE : LOGICAL_STRING_FALSE;
+            default:
+                return literal;
+        }
+    }
+
+    /**
+     * Returns value stored in given data type and bits as object (Integer if integer fits into int, otherwise Long, Double, Boolean or String)
+     *
+     * @param dataType data type of value, null if there is no value
+     * @param bits     integer value, bits of real number or 1 for logical true
+     * @param literal  literal value
+     * @return value as object, null if there is no value
+     */
+    private static Object getValueObject(FitsKeywordsDataType dataType, long bits, String literal) {
+        if (dataType == null) {
+            return null;
+        }
+        switch (dataType) {
+            case INT:
+                if (bits >= Integer.MIN_VALUE && bits <= Integer.MAX_VALUE) {
+                    return (int) bits;
+                }
+                return bits;
+            case REAL:
+                return Double.longBitsToDouble(bits);
+            case LOGICAL:
+                return bits != 0;
             default:
-                return value.replaceAll(TRAIL_END, "");
+                return literal;
         }
     }
 
+    /**
+     * Sets rValue (real part) of Card
+     *
+     * @param dataType data type of value, null if card does not have real value
+     * @param bits     integer value, bits of real number or 1 for logical true (ignored for literal)
+     * @param literal  literal value (ignored for other data types)
+     */
+    private void setRValue(FitsKeywordsDataType dataType, long bits, String literal) {
+        rValueType = dataType;
+        rValueBits = dataType == FitsKeywordsDataType.LITERAL ? 0 : bits;
+        rValueLiteral = dataType == FitsKeywordsDataType.LITERAL ? literal : null;
+    }
+
+    /**
+     * Sets iValue (imaginary part) of Card
+     *
+     * @param dataType data type of value, null if card does not have imaginary value
+     * @param bits     integer value, bits of real number or 1 for logical true (ignored for literal)
+     * @param literal  literal value (ignored for other data types)
+     */
+    private void setIValue(FitsKeywordsDataType dataType, long bits, String literal) {
+        iValueType = dataType;
+        iValueBits = dataType == FitsKeywordsDataType.LITERAL ? 0 : bits;
+        iValueLiteral = dataType == FitsKeywordsDataType.LITERAL ? literal : null;
+    }
+
     /**
      * Process Card entry - comment
      *
@@ -291,10 +498,24 @@ public class FitsCard {
      * @param startIndex index where comment section should starts
      */
     public void processComment(String entry, int startIndex) {
-        if (entry.substring(startIndex).contains("/ ")) {
-            setComment(entry.substring(entry.indexOf("/ ", startIndex) + 2));
-        } else if (entry.substring(startIndex).contains(" /")) {
-            setComment(entry.substring(entry.indexOf(" /", startIndex) + 2));
+        processComment(new FitsCardTokenizer(entry), startIndex);
+        markChanged(false);
+    }
+
+    /**
+     * Process Card entry - comment
+     *
+     * @param entry      tokenizer set to the beginning of record (80 bytes long)
+     * @param startIndex index where comment section should starts
+     */
+    private void processComment(FitsCardTokenizer entry, int startIndex) {
+        int separatorIndex = entry.indexOf('/', ' ', startIndex);
+        if (separatorIndex == -1) {
+            separatorIndex = entry.indexOf(' ', '/', startIndex);
+        }
+        if (separatorIndex != -1) {
+            int commentStart = separatorIndex + 2;
+            comment = entry.substring(commentStart, entry.stripTrailingWhitespaces(commentStart, entry.length()));
         }
     }
 
@@ -314,53 +535,74 @@ public class FitsCard {
      */
     public void setKeyword(String keywordEntry) {
         keywordEntry += "        =".substring(Math.min(keywordEntry.length(), 9)); // processing values needs = at the end
-        nParam = -1;
-        customName = null;
-        try {
-            keyword = FitsKeyword.valueOf(keywordEntry.substring(0, FitsFile.KEYWORD_LENGTH).replaceAll(TRAIL_END, "").replace('-', '_'));
-        } catch (IllegalArgumentException exc) {
-            if (keywordEntry.substring(0, 5).equals("NAXIS") && keywordEntry.substring(5, FitsFile.KEYWORD_LENGTH + 1).matches("\\d+[ ]{0,2}=")) {
-                nParam = Integer.parseInt(keywordEntry.substring(5, FitsFile.KEYWORD_LENGTH).replaceAll(TRAIL_END, ""));
-                keyword = FitsKeyword.NAXISn;
-            } else if (keywordEntry.substring(0, 7).equals("CCDSIZE") && keywordEntry.substring(7, FitsFile.KEYWORD_LENGTH + 1).matches("\\d=")) {
-                nParam = Integer.parseInt(keywordEntry.substring(7, FitsFile.KEYWORD_LENGTH));
-                keyword = FitsKeyword.CCDSIZEn;
-            } else if (keywordEntry.substring(0, 7).equals("PIXSIZE") && keywordEntry.substring(7, FitsFile.KEYWORD_LENGTH + 1).matches("\\d=")) {
-                nParam = Integer.parseInt(keywordEntry.substring(7, FitsFile.KEYWORD_LENGTH));
-                keyword = FitsKeyword.PIXSIZEn;
-            } else if (keywordEntry.substring(0, 7).equals("PIXSCAL") && keywordEntry.substring(7, FitsFile.KEYWORD_LENGTH + 1).matches("\\d=")) {
-                nParam = Integer.parseInt(keywordEntry.substring(7, FitsFile.KEYWORD_LENGTH));
-                keyword = FitsKeyword.PIXSCALn;
-            } else if (keywordEntry.substring(0, 7).equals("BIASSEC") && keywordEntry.substring(7, FitsFile.KEYWORD_LENGTH + 1).matches("\\d=")) {
-                nParam = Integer.parseInt(keywordEntry.substring(7, FitsFile.KEYWORD_LENGTH));
-                keyword = FitsKeyword.BIASSECn;
-            } else if (keywordEntry.substring(0, 7).equals("BINNING") && keywordEntry.substring(7, FitsFile.KEYWORD_LENGTH + 1).matches("\\d=")) {
-                nParam = Integer.parseInt(keywordEntry.substring(7, FitsFile.KEYWORD_LENGTH));
-                keyword = FitsKeyword.BINNINGn;
-            } else if (keywordEntry.substring(0, 5).equals("CRPIX") && keywordEntry.substring(5, FitsFile.KEYWORD_LENGTH + 1).matches("\\d+[ ]{0,2}=")) {
-                nParam = Integer.parseInt(keywordEntry.substring(5, FitsFile.KEYWORD_LENGTH).replaceAll(TRAIL_END, ""));
-                keyword = FitsKeyword.CRPIXn;
-            } else if (keywordEntry.substring(0, 5).equals("CRVAL") && keywordEntry.substring(5, FitsFile.KEYWORD_LENGTH + 1).matches("\\d+[ ]{0,2}=")) {
-                nParam = Integer.parseInt(keywordEntry.substring(5, FitsFile.KEYWORD_LENGTH).replaceAll(TRAIL_END, ""));
-                keyword = FitsKeyword.CRVALn;
-            } else if (keywordEntry.substring(0, 5).equals("CTYPE") && keywordEntry.substring(5, FitsFile.KEYWORD_LENGTH + 1).matches("\\d+[ ]{0,2}=")) {
-                nParam = Integer.parseInt(keywordEntry.substring(5, FitsFile.KEYWORD_LENGTH).replaceAll(TRAIL_END, ""));
-                keyword = FitsKeyword.CTYPEn;
-            } else if (keywordEntry.substring(0, 5).equals("CDELT") && keywordEntry.substring(5, FitsFile.KEYWORD_LENGTH + 1).matches("\\d+[ ]{0,2}=")) {
-                nParam = Integer.parseInt(keywordEntry.substring(5, FitsFile.KEYWORD_LENGTH).replaceAll(TRAIL_END, ""));
-                keyword = FitsKeyword.CDELTn;
-            } else if (keywordEntry.substring(0, 5).equals("CROTA") && keywordEntry.substring(5, FitsFile.KEYWORD_LENGTH + 1).matches("\\d+[ ]{0,2}=")) {
-                nParam = Integer.parseInt(keywordEntry.substring(5, FitsFile.KEYWORD_LENGTH).replaceAll(TRAIL_END, ""));
-                keyword = FitsKeyword.CROTAn;
-            } else if (keywordEntry.substring(0, FitsFile.KEYWORD_LENGTH).trim().isEmpty()) {
-                keyword = FitsKeyword.EMPTY;
-            } else {
-                keyword = FitsKeyword.CUSTOM;
-            }
-        }
+        resolveKeyword(new FitsCardTokenizer(keywordEntry));
         if (keyword.getType() == FitsKeywordsDataType.CUSTOM) {
             customName = keywordEntry.substring(0, FitsFile.KEYWORD_LENGTH).replaceAll(TRAIL_END, "");
         }
+        markChanged(true);
+    }
+
+    /**
+     * Marks card as changed - cached result of validation is dropped, card is not saved from its raw entry anymore and list of cards containing this card is notified
+     *
+     * @param keywordChanged true if keyword of card was changed, otherwise false
+     */
+    private void markChanged(boolean keywordChanged) {
+        valid = null;
+        rawEntry = null;
+        if (owner != null) {
+            owner.cardChanged(this, keywordChanged);
+        }
+    }
+
+    /**
+     * Sets list of cards, which contains this card and which should be notified about changes of card (card belongs to list, where it was added last)
+     *
+     * @param owner list of cards containing this card
+     */
+    void setOwner(FitsCardList owner) {
+        this.owner = owner;
+    }
+
+    /**
+     * Returns raw entry of card as it was read (including records of following CONTINUE cards), it is kept until card is changed
+     *
+     * @return raw entry of card, null if card was changed or it was not created from whole record
+     */
+    String getRawEntry() {
+        return rawEntry;
+    }
+
+    /**
+     * Sets raw entry of card (used when card is joined with following CONTINUE cards)
+     *
+     * @param rawEntry raw entry of card, null if card should be saved from its values
+     */
+    void setRawEntry(String rawEntry) {
+        this.rawEntry = rawEntry;
+    }
+
+    /**
+     * Sets keyword from given entry
+     *
+     * @param entry tokenizer set to the beginning of entry containing keyword name (at least 9 characters long)
+     */
+    private void setKeyword(FitsCardTokenizer entry) {
+        resolveKeyword(entry);
+        if (keyword.getType() == FitsKeywordsDataType.CUSTOM) {
+            customName = entry.substring(0, entry.stripTrailingWhitespaces(0, FitsFile.KEYWORD_LENGTH));
+        }
+    }
+
+    /**
+     * Resolves keyword and n param from given entry, custom name is cleared
+     *
+     * @param entry tokenizer set to the beginning of entry containing keyword name (at least 9 characters long)
+     */
+    private void resolveKeyword(FitsCardTokenizer entry) {
+        keyword = FitsKeywordResolver.resolve(entry);
+        nParam = FitsKeywordResolver.getNParam(entry, keyword);
+        customName = null;
     }
 
     /**
@@ -395,7 +637,7 @@ public class FitsCard {
      * @return rValue (real part) of Card
      */
     public Object getRValue() {
-        return rValue;
+        return getValueObject(rValueType, rValueBits, rValueLiteral);
     }
 
     /**
@@ -404,8 +646,10 @@ public class FitsCard {
      * @param value value to be set
      */
     public void setRValue(String value) {
-        rValue = processValue(value);
-        computeDateValue();
+        FitsKeywordsDataType dataType = getDataTypeOfValue(value);
+        setRValue(dataType, processValueBits(value, dataType), dataType == FitsKeywordsDataType.LITERAL ? value.replaceAll(TRAIL_END, "") : null);
+        dateValueComputed = false;
+        markChanged(false);
     }
 
     /**
@@ -414,17 +658,50 @@ public class FitsCard {
      * @return string representation of rValue (real part) of Card
      */
     public String getRValueString() {
-        if (rValue == null) {
-            return "";
-        } else if (rValue instanceof Boolean) {
-            if ((boolean) rValue) {
-                return LOGICAL_STRING_TRUE;
-            } else {
-                return LOGICAL_STRING_FALSE;
-            }
-        } else {
-            return rValue.toString();
+        return getValueString(rValueType, rValueBits, rValueLiteral);
+    }
+
+    /**
+     * Returns rValue (real part) of Card as integer without boxing, real numbers are truncated
+     *
+     * @return rValue (real part) of Card as integer
+     * @throws IllegalStateException if rValue (real part) of Card is not number
+     */
+    public long getLong() {
+        if (rValueType == FitsKeywordsDataType.INT) {
+            return rValueBits;
+        } else if (rValueType == FitsKeywordsDataType.REAL) {
+            return (long) Double.longBitsToDouble(rValueBits);
         }
+        throw new IllegalStateException("Value of keyword " + getKeywordName() + " is not number");
+    }
+
+    /**
+     * Returns rValue (real part) of Card as real number without boxing
+     *
+     * @return rValue (real part) of Card as real number
+     * @throws IllegalStateException if rValue (real part) of Card is not number
+     */
+    public double getDouble() {
+        if (rValueType == FitsKeywordsDataType.REAL) {
+            return Double.longBitsToDouble(rValueBits);
+        } else if (rValueType == FitsKeywordsDataType.INT) {
+            return rValueBits;
+        }
+        throw new IllegalStateException("Value of keyword " + getKeywordName() + " is not number");
+    }
+
+    /**
+     * Returns rValue (real part) of Card as logical value without boxing
+     *
+     * @return rValue (real part) of Card as logical value
+     * @throws IllegalStateException if rValue (real part) of Card is not logical value
+     */
+    public boolean getBoolean() {
+        if (rValueType == FitsKeywordsDataType.LOGICAL) {
+            return rValueBits != 0;
+        }
+        throw new IllegalStateException("Value of keyword " + getKeywordName() + " is not logical value");
     }
 
     /**
@@ -467,6 +744,7 @@ public class FitsCard {
         } else {
             this.comment = "";
         }
+        markChanged(false);
     }
 
     /**
@@ -475,7 +753,7 @@ public class FitsCard {
      * @return iValue (imaginary part) of Card
      */
     public Object getIValue() {
-        return iValue;
+        return getValueObject(iValueType, iValueBits, iValueLiteral);
     }
 
     /**
@@ -484,7 +762,9 @@ public class FitsCard {
      * @param value value to be set
      */
     public void setIValue(String value) {
-        iValue = processValue(value);
+        FitsKeywordsDataType dataType = getDataTypeOfValue(value);
+        setIValue(dataType, processValueBits(value, dataType), dataType == FitsKeywordsDataType.LITERAL ? value.replaceAll(TRAIL_END, "") : null);
+        markChanged(false);
     }
 
     /**
@@ -493,7 +773,7 @@ public class FitsCard {
      * @return string representation of iValue (imaginary part) of Card
      */
     public String getIValueString() {
-        return iValue != null ? iValue.toString() : "";
+        return getValueString(iValueType, iValueBits, iValueLiteral);
     }
 
     /**
@@ -504,18 +784,10 @@ public class FitsCard {
     public FitsKeywordsDataType getDataType() {
         if (keyword.getType() == FitsKeywordsDataType.NONE) {
             return FitsKeywordsDataType.NONE;
-        } else if (rValue instanceof String) {
-            return FitsKeywordsDataType.LITERAL;
-        } else if (rValue instanceof Integer) {
-            return FitsKeywordsDataType.INT;
-        } else if (rValue instanceof Double) {
-            return FitsKeywordsDataType.REAL;
-        } else if (rValue instanceof Boolean) {
-            return FitsKeywordsDataType.LOGICAL;
-        } else if (iValue instanceof Integer) {
-            return FitsKeywordsDataType.INT;
-        } else if (iValue instanceof Double) {
-            return FitsKeywordsDataType.REAL;
+        } else if (rValueType != null) {
+            return rValueType;
+        } else if (iValueType == FitsKeywordsDataType.INT || iValueType == FitsKeywordsDataType.REAL) {
+            return iValueType;
         } else {
             return FitsKeywordsDataType.LITERAL;
         }
@@ -529,26 +801,20 @@ public class FitsCard {
     public String getValue() {
         FitsKeywordsDataType dataType = getDataType();
         if (dataType == FitsKeywordsDataType.REAL || dataType == FitsKeywordsDataType.INT) {
-            if (iValue == null) {
-                return rValue.toString();
+            if (iValueType == null) {
+                return getRValueString();
             } else {
-                return '(' + rValue.toString() + ", " + iValue.toString() + ')';
+                return '(' + getRValueString() + ", " + getIValueString() + ')';
             }
         } else if (dataType == FitsKeywordsDataType.LITERAL) {
-            return (String) rValue;
+            return rValueLiteral;
         } else if (keyword == FitsKeyword.COMMENT || keyword == FitsKeyword.HISTORY) {
-            return (String) rValue;
+            return rValueLiteral;
         } else if (dataType == FitsKeywordsDataType.NONE) {
             return "";
-        } else if (rValue instanceof Boolean) {
-            if ((Boolean) rValue) {
-                return LOGICAL_STRING_TRUE;
-            } else {
-                return LOGICAL_STRING_FALSE;
-            }
-        } else // if thanks partial or bad editing is not datatype set correctly
+        } else // logical value or if thanks partial or bad editing is not datatype set correctly
         {
-            return rValue != null ? rValue.toString() : "";
+            return getRValueString();
         }
     }
 
@@ -572,17 +838,11 @@ public class FitsCard {
      * @return data type of given value
      */
     public FitsKeywordsDataType getDataTypeOfValue(String value) {
-        try {
-            Integer.parseInt(value);
-            return FitsKeywordsDataType.INT;
-        } catch (NumberFormatException ignored) {
-        }
-        try {
-            Double.parseDouble(value);
-            return FitsKeywordsDataType.REAL;
-        } catch (NumberFormatException ignored) {
-        }
-        if (value.equals(LOGICAL_STRING_TRUE) || value.equals(LOGICAL_STRING_FALSE)) {
+        FitsCardTokenizer tokenizer = new FitsCardTokenizer(value);
+        FitsKeywordsDataType dataType = FitsNumberParser.getType(tokenizer, 0, tokenizer.length());
+        if (dataType != null) {
+            return dataType;
+        } else if (value.equals(LOGICAL_STRING_TRUE) || value.equals(LOGICAL_STRING_FALSE)) {
             return FitsKeywordsDataType.LOGICAL;
         } else {
             return FitsKeywordsDataType.LITERAL;
@@ -595,7 +855,7 @@ public class FitsCard {
      * @return true if contains date value, otherwise false
      */
     public boolean isDateValue() {
-        return dateValue != null;
+        return getDateValue() != null;
     }
 
     /**
@@ -604,7 +864,7 @@ public class FitsCard {
      * @return true if contains classical date value, otherwise false
      */
     public boolean isClassicDateValue() {
-        return (isDateValue() && dateValue.isCreatedFromClassicDate());
+        return (isDateValue() && getDateValue().isCreatedFromClassicDate());
     }
 
     /**
@@ -613,7 +873,7 @@ public class FitsCard {
      * @return true if contains julian day date value, otherwise false
      */
     public boolean isJulianDayDateValue() {
-        return (isDateValue() && !dateValue.isCreatedFromClassicDate());
+        return (isDateValue() && !getDateValue().isCreatedFromClassicDate());
     }
 
     /**
@@ -642,6 +902,116 @@ public class FitsCard {
         return result.append(';').toString();
     }
 
+    /**
+     * Checks if card is valid (same as validate().isEmpty(), but problems are not created)
+     * Result is kept until card is changed
+     *
+     * @return true if card is valid, otherwise false
+     */
+    public boolean isValid() {
+        if (valid == null) {
+            valid = checkValidity();
+        }
+        return valid;
+    }
+
+    /**
+     * Checks all rules of validation, stops at first problem
+     *
+     * @return true if card is valid, otherwise false
+     */
+    private boolean checkValidity() {
+        FitsKeywordsDataType keywordDataType = keyword.getType();
+        FitsKeywordsDataType realDataType = getDataType();
+        boolean number = realDataType == FitsKeywordsDataType.INT || realDataType == FitsKeywordsDataType.REAL;
+        boolean realValueEmpty = isValueEmpty(rValueType, rValueLiteral);
+        boolean imaginaryValueEmpty = isValueEmpty(iValueType, iValueLiteral);
+        if (keywordDataType != FitsKeywordsDataType.NONE && keywordDataType != FitsKeywordsDataType.CUSTOM && realDataType != keywordDataType) {
+            return false;
+        }
+        if (!imaginaryValueEmpty) {
+            if ((number && realDataType != iValueType) || ((iValueType == FitsKeywordsDataType.INT || realDataType == FitsKeywordsDataType.REAL) && !isValueFittingValueField(iValueType, iValueBits, iValueLiteral))) {
+                return false;
+            } else if (realValueEmpty || realDataType == FitsKeywordsDataType.LITERAL || realDataType == FitsKeywordsDataType.LOGICAL) {
+                return false;
+            }
+        }
+        if (number && !isValueFittingValueField(rValueType, rValueBits, rValueLiteral)) {
+            return false;
+        } else if (keyword.isUnitKeyword() && getComment().isEmpty()) {
+            return false;
+        } else if (realDataType == FitsKeywordsDataType.LOGICAL && getComment().length() + COMMENT_SEPARATOR.length() > FitsFile.CARD_LENGTH - IVALUE_START_INDEX) {
+            return false;
+        } else if (number && getComment().length() + COMMENT_SEPARATOR.length() > FitsFile.CARD_LENGTH - (imaginaryValueEmpty ? IVALUE_START_INDEX : COMMENT_START_INDEX)) {
+            return false;
+        } else if (keyword.isNKeyword() && nParam < 1) {
+            return false;
+        } else if (!isValueContainingOnlyAllowedCharacters() || !isStringContainingOnlyAllowedCharacters(getComment())) {
+            return false;
+        }
+        switch (keyword) {
+            case CUSTOM:
+                return isKeywordNameContainingOnlyAllowedCharacters(customName) && customName.length() <= FitsFile.KEYWORD_LENGTH;
+            case EMPTY:
+                return realValueEmpty && imaginaryValueEmpty && getComment().length() + COMMENT_SEPARATOR.length() <= FitsFile.CARD_LENGTH - IVALUE_START_INDEX;
+            case END:
+                return realValueEmpty && imaginaryValueEmpty && getComment().isEmpty();
+            case HISTORY:
+            case COMMENT:
+                return imaginaryValueEmpty && getComment().isEmpty();
+            case CONTINUE:
+                return imaginaryValueEmpty;
+            case BITPIX:
+                return realDataType != FitsKeywordsDataType.INT || isBitpixValue(rValueBits);
+            case NAXIS:
+                return realDataType != FitsKeywordsDataType.INT || (rValueBits >= 0 && rValueBits <= 999);
+            case NAXISn:
+            case PEDESTAL:
+                return realDataType != FitsKeywordsDataType.INT || rValueBits >= 0;
+            default:
+                return true;
+        }
+    }
+
+    /**
+     * Checks if value stored in given data type and bits has empty string representation (see getRValueString), value is not rendered
+     *
+     * @param dataType data type of value, null if there is no value
+     * @param literal  literal value
+     * @return true if string representation of value is empty, otherwise false
+     */
+    private static boolean isValueEmpty(FitsKeywordsDataType dataType, String literal) {
+        return dataType == null || (dataType == FitsKeywordsDataType.LITERAL && (literal == null || literal.isEmpty()));
+    }
+
+    /**
+     * Checks if string representation of value stored in given data type and bits fits into value field of card
+     * Value is rendered only if its length cannot be bounded from its bits (real numbers in scientific notation or lesser than one)
+     *
+     * @param dataType data type of value, null if there is no value
+     * @param bits     integer value, bits of real number or 1 for logical true
+     * @param literal  literal value
+     * @return true if string representation of value has at most VALUE_LENGTH chars, otherwise false
+     */
+    private static boolean isValueFittingValueField(FitsKeywordsDataType dataType, long bits, String literal) {
+        if (dataType == null) {
+            return true;
+        }
+        switch (dataType) {
+            case INT: // the longest integer is Long.MIN_VALUE with VALUE_LENGTH chars
+            case LOGICAL:
+                return true;
+            case REAL:
+                double value = Math.abs(Double.longBitsToDouble(bits));
+                if (value == 0.0 || (value >= 1.0 && value < 1.0E7)) { // plain notation with at most 17 digits, sign and point
+                    return true;
+                }
+                return Double.toString(Double.longBitsToDouble(bits)).length() <= VALUE_LENGTH;
+            default:
+                return literal == null || literal.length() <= VALUE_LENGTH;
+        }
+    }
+
     /**
      * Validates card and returns problems
      *
@@ -650,6 +1020,9 @@ public class FitsCard {
     public List<String> validate() {
         String problemPrefix;
         List<String> problems = new ArrayList<>();
+        if (isValid()) { // problems are created only for invalid cards
+            return problems;
+        }
         String keywordName = getKeywordName();
         FitsKeywordsDataType keywordDataType = keyword.getType();
         FitsKeywordsDataType realDataType = getDataType();
@@ -659,7 +1032,7 @@ public class FitsCard {
                 problems.add(linkProblem("Keyword ", keywordName, " has ", realDataType.toString(), " data type, but it should have ", keywordDataType.toString(), " data type."));
             }
         }
-        if (realDataType != FitsKeywordsDataType.NONE && iValue != null && !getIValueString().isEmpty() && realDataType != imaginaryDataType && (realDataType == FitsKeywordsDataType.INT || realDataType == FitsKeywordsDataType.REAL)) {
+        if (realDataType != FitsKeywordsDataType.NONE && iValueType != null && !getIValueString().isEmpty() && realDataType != imaginaryDataType && (realDataType == FitsKeywordsDataType.INT || realDataType == FitsKeywordsDataType.REAL)) {
             problems.add(linkProblem("Keyword ", keywordName, " has ", realDataType.toString(), " data type of real value, but imaginary value has ", imaginaryDataType.toString(), " data type."));
         }
         if ((realDataType == FitsKeywordsDataType.INT || realDataType == FitsKeywordsDataType.REAL) && getRValueString().length() > VALUE_LENGTH) {
@@ -698,7 +1071,7 @@ public class FitsCard {
         }
         switch (keyword) {
             case CUSTOM:
-                if (!customName.replaceAll("[A-Z0-9-_]", "").isEmpty()) {
+                if (!isKeywordNameContainingOnlyAllowedCharacters(customName)) {
                     problems.add(linkProblem("Keyword ", customName, " contains forbidden characters (allowed: uppercase letters A to Z, the digits 0 to 9, the hyphen, and the underscore character)."));
                 }
                 if (customName.length() > FitsFile.KEYWORD_LENGTH) {
@@ -707,10 +1080,10 @@ public class FitsCard {
                 break;
             case EMPTY:
                 problemPrefix = "Empty keyword can have only comment, not value - ";
-                if (rValue != null && !getRValueString().isEmpty()) {
+                if (rValueType != null && !getRValueString().isEmpty()) {
                     problems.add(linkProblem(problemPrefix, "real value is '", getRValueString(), "'."));
                 }
-                if (iValue != null && !getIValueString().isEmpty()) {
+                if (iValueType != null && !getIValueString().isEmpty()) {
                     problems.add(linkProblem(problemPrefix, "imaginary value is '", getIValueString(), "'."));
                 }
                 if (getComment().length() + COMMENT_SEPARATOR.length() > FitsFile.CARD_LENGTH - IVALUE_START_INDEX) {
@@ -719,10 +1092,10 @@ public class FitsCard {
                 break;
             case END:
                 problemPrefix = "END keyword must be empty - ";
-                if (rValue != null && !getRValueString().isEmpty()) {
+                if (rValueType != null && !getRValueString().isEmpty()) {
                     problems.add(linkProblem(problemPrefix, "real value is '", getRValueString(), "'."));
                 }
-                if (iValue != null && !getIValueString().isEmpty()) {
+                if (iValueType != null && !getIValueString().isEmpty()) {
                     problems.add(linkProblem(problemPrefix, "imaginary value is '", getIValueString(), "'."));
                 }
                 if (comment != null && !comment.isEmpty()) {
@@ -732,7 +1105,7 @@ public class FitsCard {
             case HISTORY:
             case COMMENT:
                 problemPrefix = keyword + " keyword must be empty - ";
-                if (iValue != null && !getIValueString().isEmpty()) {
+                if (iValueType != null && !getIValueString().isEmpty()) {
                     problems.add(linkProblem(problemPrefix, "imaginary value is '", getIValueString(), "'."));
                 }
                 if (comment != null && !comment.isEmpty()) {
@@ -740,26 +1113,25 @@ public class FitsCard {
                 }
                 break;
             case CONTINUE:
-                if (iValue != null && !getIValueString().isEmpty()) {
+                if (iValueType != null && !getIValueString().isEmpty()) {
                     problems.add(linkProblem("CONTINUE keyword must be empty - imaginary value is '", getIValueString(), "'."));
                 }
                 break;
             case BITPIX:
-                int[] bitpixValues = {-64, -32, 8, 16, 32};
-                if (realDataType == FitsKeywordsDataType.INT && Arrays.stream(bitpixValues).noneMatch(i -> i == (int) rValue)) {
+                if (realDataType == FitsKeywordsDataType.INT && !isBitpixValue(rValueBits)) {
                     StringJoiner stringJoiner = new StringJoiner(", ");
-                    Arrays.stream(bitpixValues).forEach(i -> stringJoiner.add(Integer.toString(i)));
+                    Arrays.stream(BITPIX_VALUES).forEach(i -> stringJoiner.add(Integer.toString(i)));
                     problems.add(linkProblem("BITPIX keyword has invalid real value ", getRValueString(), ", valid values are: ", stringJoiner.toString(), "."));
                 }
                 break;
             case NAXIS:
-                if (realDataType == FitsKeywordsDataType.INT && ((int) rValue < 0 || (int) rValue > 999)) {
+                if (realDataType == FitsKeywordsDataType.INT && (rValueBits < 0 || rValueBits > 999)) {
                     problems.add(linkProblem("NAXIS keyword must have real value in range of 0-999, but it has value ", getRValueString(), "."));
                 }
                 break;
             case NAXISn:
             case PEDESTAL:
-                if (realDataType == FitsKeywordsDataType.INT && (int) rValue < 0) {
+                if (realDataType == FitsKeywordsDataType.INT && rValueBits < 0) {
                     problems.add(linkProblem(keywordName, " keyword can not have real value negative."));
                 }
                 break;
@@ -777,22 +1149,88 @@ public class FitsCard {
         if (string == null) {
             return true;
         }
-        for (int ch : string.toCharArray()) {
-            if (ch < 32 || ch > 126) {
+        for (int i = 0; i < string.length(); i++) {
+            if (string.charAt(i) < 32 || string.charAt(i) > 126) {
                 return false;
             }
         }
         return true;
     }
 
+    /**
+     * Checks if value (see getValue) contains only allowed characters, value is not created for this purpose
+     *
+     * @return true if value contains only allowed characters, otherwise false
+     */
+    private boolean isValueContainingOnlyAllowedCharacters() {
+        FitsKeywordsDataType dataType = getDataType();
+        if (dataType == FitsKeywordsDataType.REAL || dataType == FitsKeywordsDataType.INT) { // numbers and logical values are rendered only from allowed characters
+            return isStringContainingOnlyAllowedCharacters(rValueLiteral) && isStringContainingOnlyAllowedCharacters(iValueLiteral);
+        } else if (dataType == FitsKeywordsDataType.LITERAL || keyword == FitsKeyword.COMMENT || keyword == FitsKeyword.HISTORY) {
+            return isStringContainingOnlyAllowedCharacters(rValueLiteral);
+        } else { // value is empty or logical
+            return true;
+        }
+    }
+
+    /**
+     * Checks if given keyword name contains only allowed characters (uppercase letters A to Z, the digits 0 to 9, the hyphen, and the underscore character)
+     *
+     * @param name keyword name to check
+     * @return true if keyword name contains only allowed characters, otherwise false
+     */
+    private static boolean isKeywordNameContainingOnlyAllowedCharacters(String name) {
+        for (int i = 0; i < name.length(); i++) {
+            char ch = name.charAt(i);
+            if ((ch < 'A' || ch > 'Z') && (ch < '0' || ch > '9') && ch != '-' && ch != '_') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Checks if given value is valid value of keyword BITPIX
+     *
+     * @param value value to check
+     * @return true if given value is valid value of keyword BITPIX, otherwise false
+     */
+    private static boolean isBitpixValue(long value) {
+        for (int bitpixValue : BITPIX_VALUES) {
+            if (bitpixValue == value) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     /**
      * Returns string of card for saving FITS header
      *
      * @return string of card for saving FITS header, if card is not valid, returns null
      */
     public String getSaveRepresentation() {
-        if (validate().isEmpty()) {
-            StringBuilder result = new StringBuilder(FitsFile.BLANK_CARD_ENTRY);
+        StringBuilder result = new StringBuilder(FitsFile.BLANK_CARD_ENTRY);
+        if (isValid() && fillSaveRepresentation(result)) {
+            return result.toString();
+        } else {
+            return null;
+        }
+    }
+
+    /**
+     * Fills given builder with string of card for saving FITS header (CONTINUE cards included)
+     * Card, which was not changed since it was read, is written from its raw entry, so values are not formatted again (validity is not checked then)
+     *
+     * @param result builder containing only FitsFile.BLANK_CARD_ENTRY
+     * @return true if builder was filled, false if card is not valid
+     */
+    boolean fillSaveRepresentation(StringBuilder result) {
+        if (rawEntry != null) {
+            result.setLength(0);
+            result.append(rawEntry);
+            return true;
+        } else if (isValid()) {
             String value;
             int commentStarts;
             int continueCreated = 0;
@@ -802,7 +1240,7 @@ public class FitsCard {
                 result.setCharAt(8, '=');
             }
             if (keyword == FitsKeyword.COMMENT || keyword == FitsKeyword.HISTORY) {
-                result.insert(FitsFile.KEYWORD_LENGTH, rValue);
+                result.insert(FitsFile.KEYWORD_LENGTH, rValueLiteral);
             } else if (dataType == FitsKeywordsDataType.INT || dataType == FitsKeywordsDataType.REAL) {
                 value = getRValueString();
                 result.insert(IVALUE_START_INDEX - value.length(), value);
@@ -818,7 +1256,7 @@ public class FitsCard {
                     result.insert(commentStarts, COMMENT_SEPARATOR + value);
                 }
             } else if (dataType == FitsKeywordsDataType.LOGICAL) {
-                if ((boolean) rValue) {
+                if (getBoolean()) {
                     result.setCharAt(IVALUE_START_INDEX - 1, LOGICAL_CHAR_TRUE);
                 } else {
                     result.setCharAt(IVALUE_START_INDEX - 1, LOGICAL_CHAR_FALSE);
@@ -828,115 +1266,33 @@ public class FitsCard {
                     result.insert(IVALUE_START_INDEX, COMMENT_SEPARATOR + value);
                 }
             } else if (dataType == FitsKeywordsDataType.LITERAL || keyword == FitsKeyword.CONTINUE) {
-                value = getEscapedValue();
-                String commentContinue = getComment();
-                int commentSeparatorNeeded = 0;
-                if (!commentContinue.isEmpty()) {
-                    commentSeparatorNeeded = 1;
-                }
-                while (true) {
-                    int valueLength = value.length() + 2 * LITERAL_MARK.length();
-                    int commentLength = COMMENT_SEPARATOR.length() * commentSeparatorNeeded + commentContinue.length();
-                    int maxLength = valueLength + commentLength;
-                    if (maxLength <= CONTINUE_VALUE_LENGTH) {
-                        value = LITERAL_MARK + value + LITERAL_MARK;
-                        if (!commentContinue.isEmpty()) {
-                            value = value + COMMENT_SEPARATOR + commentContinue;
-                        }
-                        if (continueCreated != 0) {
-                            result.insert(FitsFile.CARD_LENGTH * continueCreated, FitsFile.CONTINUE_CARD_PREFIX);
-                        }
-                        result.insert(RVALUE_START_INDEX + FitsFile.CARD_LENGTH * continueCreated, value);
-                        break;
-                    } else {
-                        int partValueEndIndex;
-                        int partCommentEndIndex = 0;
-                        if (commentLength == 0) {
-                            partValueEndIndex = value.lastIndexOf(' ', FitsFile.CARD_LENGTH - VALUE_LENGTH_RESERVED - 1) + 1;
-                            if (partValueEndIndex == 0) {
-                                partValueEndIndex = CONTINUE_VALUE_LENGTH - VALUE_LENGTH_RESERVED;
-                            }
-                        } else {
-                            double ratioValue = ((double) (valueLength + CONTINUED_VALUE_END_MARK.length())) / maxLength;
-                            double ratioComment = ((double) commentLength) / maxLength;
-                            int maxValueLength = (int) (ratioValue * CONTINUE_VALUE_LENGTH) - VALUE_LENGTH_RESERVED;
-                            int maxCommentLength = (int) (ratioComment * CONTINUE_VALUE_LENGTH) - COMMENT_SEPARATOR.length();
-                            partValueEndIndex = value.lastIndexOf(' ', maxValueLength) + 1; // This I want with last space
-                            if (partValueEndIndex == 0) {
-                                partValueEndIndex = maxValueLength;
-                            }
-                            partCommentEndIndex = commentContinue.lastIndexOf(' ', maxCommentLength); //This I do not want with last space - I remove end trailing spaces
-                            if (partCommentEndIndex == 0) {
-                                partCommentEndIndex = maxCommentLength;
-                            }
-                        }
-                        StringBuilder partValue = new StringBuilder(FitsFile.BLANK_CARD_ENTRY);
-                        String insert;
-                        int indexInsert = 0;
-                        if (continueCreated != 0) {
-                            insert = FitsFile.CONTINUE_CARD_PREFIX;
-                            partValue.insert(indexInsert, insert);
-                            indexInsert += insert.length();
-                        }
-                        insert = LITERAL_MARK;
-                        partValue.insert(indexInsert, insert);
-                        indexInsert += insert.length();
-                        insert = value.substring(0, partValueEndIndex);
-                        value = value.substring(partValueEndIndex);
-                        partValue.insert(indexInsert, insert);
-                        indexInsert += insert.length();
-                        insert = CONTINUED_VALUE_END_MARK;
-                        partValue.insert(indexInsert, insert);
-                        indexInsert += insert.length();
-                        insert = LITERAL_MARK;
-                        partValue.insert(indexInsert, insert);
-                        indexInsert += insert.length();
-                        if (partCommentEndIndex != 0) {
-                            insert = COMMENT_SEPARATOR;
-                            partValue.insert(indexInsert, insert);
-                            indexInsert += insert.length();
-                            insert = commentContinue.substring(0, partCommentEndIndex);
-                            commentContinue = commentContinue.substring(partCommentEndIndex);
-                            partValue.insert(indexInsert, insert);
-                        }
-                        partValue.setLength(FitsFile.CARD_LENGTH);
-                        if (continueCreated != 0) {
-                            result.insert(FitsFile.CARD_LENGTH * continueCreated, partValue.toString());
-                        } else {
-                            result.insert(RVALUE_START_INDEX, partValue.toString());
-                        }
-                        continueCreated++;
-                        if (commentContinue.isEmpty()) {
-                            commentSeparatorNeeded = 0;
-                        }
-                    }
-                }
+                result.setLength(RVALUE_START_INDEX);
+                continueCreated = FitsLongStringCodec.write(result, getEscapedValue(), getComment());
             } else if (keyword == FitsKeyword.EMPTY && getComment() != null && !getComment().isEmpty()) {
                 result.insert(IVALUE_START_INDEX, COMMENT_SEPARATOR + getComment());
             }
             result.setLength(FitsFile.CARD_LENGTH + continueCreated * FitsFile.CARD_LENGTH);
-            return result.toString();
+            return true;
         } else {
-            return null;
+            return false;
         }
     }
 
     /**
-     * Computes date value
+     * Computes date value (it is computed on first access to date value and it is kept until real value is changed)
      */
     private void computeDateValue() {
         dateValue = null;
-        if (rValue instanceof Double || rValue instanceof Integer) {
-            if (((Number) rValue).doubleValue() >= 0.0) // valid julian days for used algorithm are only non negative
+        if (rValueType == FitsKeywordsDataType.INT || rValueType == FitsKeywordsDataType.REAL) {
+            if (getDouble() >= 0.0) // valid julian days for used algorithm are only non negative
             {
-                dateValue = FitsCardDateValue.createFromJulianDay(((Number) rValue).doubleValue());
+                dateValue = FitsCardDateValue.createFromJulianDay(getDouble());
                 dateValue.setOwner(this);
             }
-        } else if (rValue instanceof String) {
-            try {
-                dateValue = FitsCardDateValue.createFromDateString((String) rValue);
+        } else if (rValueType == FitsKeywordsDataType.LITERAL) {
+            dateValue = FitsCardDateValue.parseDateString(rValueLiteral);
+            if (dateValue != null) {
                 dateValue.setOwner(this);
-            } catch (FitsCardDateValueUnknownFormatException ignored) {
             }
         }
     }
@@ -947,6 +1303,10 @@ public class FitsCard {
      * @return date value of this card
      */
     public FitsCardDateValue getDateValue() {
+        if (!dateValueComputed) {
+            computeDateValue();
+            dateValueComputed = true;
+        }
         return dateValue;
     }
 
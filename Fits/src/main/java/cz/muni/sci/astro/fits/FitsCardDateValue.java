@@ -2,10 +2,8 @@ package cz.muni.sci.astro.fits;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
-import java.time.LocalTime;
 import java.time.format.DateTimeFormatter;
 import java.time.format.DateTimeFormatterBuilder;
-import java.time.format.DateTimeParseException;
 import java.time.temporal.ChronoField;
 import java.time.temporal.ChronoUnit;
 import java.util.Arrays;
@@ -25,6 +23,25 @@ public class FitsCardDateValue {
             "uuuu-MM-dd", "MM/dd/yyyy", "HH:mm:ss", "H:mm:ss"
     };
     private static final int MAX_FRACTION_DIGITS = 9;
+    private static final int FORMAT_ISO_DATE_T_TIME = 0;
+    private static final int FORMAT_ISO_DATE_SPACE_TIME = 2;
+    private static final int FORMAT_US_DATE_SPACE_TIME = 4;
+    private static final int FORMAT_US_DATE_T_TIME = 6;
+    private static final int FORMAT_ISO_DATE = 8;
+    private static final int FORMAT_US_DATE = 9;
+    private static final int FORMAT_TIME = 10;
+    private static final int YEAR_DIGITS = 4;
+    private static final int MAX_YEAR_DIGITS = 9;
+    private static final int MAX_HOUR = 24;
+    private static final LocalDate TIME_ONLY_DATE = LocalDate.of(-4713, 11, 25);
+    private static final LocalDateTime JULIAN_DAY_BASE = LocalDateTime.of(2016, 1, 1, 0, 0);
+    private static final DateTimeFormatter[] formatters = new DateTimeFormatter[acceptableFormats.length];
+
+    static {
+        for (int i = 0; i < acceptableFormats.length; i++) {
+            formatters[i] = createDateTimeFormatter(acceptableFormats[i]);
+        }
+    }
 
     private FitsCard owner;
     private LocalDateTime date;
@@ -40,7 +57,20 @@ public class FitsCardDateValue {
         date = LocalDateTime.now();
         originDate = date.withYear(date.getYear()); // creates copy
         formatIndex = 0;
-        formatter = createDateTimeFormatter(acceptableFormats[0]);
+        formatter = formatters[0];
+    }
+
+    /**
+     * Creates new date value with given date and format
+     *
+     * @param date        date value
+     * @param formatIndex index of format in acceptable formats
+     */
+    private FitsCardDateValue(LocalDateTime date, int formatIndex) {
+        this.date = date;
+        originDate = date;
+        this.formatIndex = formatIndex;
+        formatter = formatters[formatIndex];
     }
 
     /**
@@ -51,27 +81,241 @@ public class FitsCardDateValue {
      * @throws FitsCardDateValueUnknownFormatException throws when given text has unknown date format
      */
     public static FitsCardDateValue createFromDateString(String text) throws FitsCardDateValueUnknownFormatException {
-        FitsCardDateValue newDateValue = new FitsCardDateValue();
-        DateTimeFormatter formatter;
-        for (String format : acceptableFormats) {
-            formatter = createDateTimeFormatter(format);
-            try {
-                if (format.contains("u") && format.contains("m")) {
-                    newDateValue.date = LocalDateTime.parse(text, formatter);
-                } else if (format.contains("u")) {
-                    newDateValue.date = LocalDate.parse(text, formatter).atTime(0, 0);
-                } else {
-                    newDateValue.date = LocalTime.parse(text, formatter).atDate(LocalDate.of(-4713, 11, 25));
-                }
-                newDateValue.formatter = formatter;
-                newDateValue.formatIndex = getAcceptableFormats().indexOf(format);
-                newDateValue.originDate = newDateValue.date.withYear(newDateValue.date.getYear());
-                return newDateValue;
-            } catch (DateTimeParseException ignored) {
+        FitsCardDateValue newDateValue = parseDateString(text);
+        if (newDateValue == null) {
+            throw new FitsCardDateValueUnknownFormatException(text + " has unknown date format");
+        }
+        return newDateValue;
+    }
+
+    /**
+     * Parses given text representation of date in one pass, text has to be in one of acceptable formats (fraction of seconds can follow)
+     * Invalid day of month is changed to last day of month, hour 24 is midnight of next day (same as smart resolving of date time formatters)
+     *
+     * @param text text representation of date
+     * @return new date value created form given text representation of date, null if given text has unknown date format
+     */
+    static FitsCardDateValue parseDateString(String text) {
+        int length = text.length();
+        int index;
+        int formatIndex;
+        LocalDate date = null;
+        int yearEnd = getYearEnd(text, 0);
+        if (yearEnd != -1 && yearEnd < length && text.charAt(yearEnd) == '-') { // uuuu-MM-dd
+            if (!isDateSeparator(text, yearEnd + 3, '-') || !isDigits(text, yearEnd + 4, yearEnd + 6)) {
+                return null;
+            }
+            date = createDate(text, getDigits(text, 0, yearEnd), yearEnd + 1, yearEnd + 4);
+            index = yearEnd + 6;
+            formatIndex = FORMAT_ISO_DATE;
+        } else if (isDateSeparator(text, 2, '/') && isDateSeparator(text, 5, '/')) { // MM/dd/uuuu
+            yearEnd = getYearEnd(text, 6);
+            if (yearEnd != -1) {
+                date = createDate(text, getDigits(text, 6, yearEnd), 0, 3);
+            }
+            index = yearEnd;
+            formatIndex = FORMAT_US_DATE;
+        } else {
+            index = 0;
+            formatIndex = FORMAT_TIME;
+        }
+        if (formatIndex != FORMAT_TIME && date == null) {
+            return null;
+        }
+        if (index == length || (formatIndex != FORMAT_TIME && text.charAt(index) == '.')) { // date without time, fraction is ignored
+            if (formatIndex == FORMAT_US_DATE && (text.charAt(6) == '-' || date.getYear() < 1)) { // yyyy does not accept negative years and year 0
+                return null;
+            }
+            if (index != length && getFractionEnd(text, index) != length) {
+                return null;
+            }
+            return formatIndex == FORMAT_TIME ? null : new FitsCardDateValue(date.atStartOfDay(), formatIndex);
+        }
+        if (formatIndex == FORMAT_ISO_DATE) {
+            formatIndex = text.charAt(index) == 'T' ? FORMAT_ISO_DATE_T_TIME : text.charAt(index) == ' ' ? FORMAT_ISO_DATE_SPACE_TIME : -1;
+            index++;
+        } else if (formatIndex == FORMAT_US_DATE) {
+            formatIndex = text.charAt(index) == 'T' ? FORMAT_US_DATE_T_TIME : text.charAt(index) == ' ' ? FORMAT_US_DATE_SPACE_TIME : -1;
+            index++;
+        } else {
+            date = TIME_ONLY_DATE;
+        }
+        if (formatIndex == -1) {
+            return null;
+        }
+        int hourEnd = index;
+        while (hourEnd < length && isDigit(text.charAt(hourEnd))) {
+            hourEnd++;
+        }
+        if (hourEnd == index || hourEnd == length || text.charAt(hourEnd) != ':' || !isDateSeparator(text, hourEnd + 3, ':') || !isDigits(text, hourEnd + 4, hourEnd + 6)) {
+            return null;
+        }
+        if (hourEnd - index != 2) { // H instead of HH
+            formatIndex++;
+        }
+        int fractionEnd = getFractionEnd(text, hourEnd + 6);
+        if (fractionEnd != length) {
+            return null;
+        }
+        int hour = getDigits(text, index, hourEnd);
+        int minute = getDigits(text, hourEnd + 1, hourEnd + 3);
+        int second = getDigits(text, hourEnd + 4, hourEnd + 6);
+        int nano = getNanos(text, hourEnd + 6, fractionEnd);
+        if (hour < 0 || hour > MAX_HOUR || minute < 0 || minute > 59 || second < 0 || second > 59) {
+            return null;
+        }
+        LocalDateTime dateTime;
+        if (hour == MAX_HOUR) {
+            if (minute != 0 || second != 0 || nano != 0) {
+                return null;
             }
+            dateTime = formatIndex < FORMAT_TIME ? date.plusDays(1).atStartOfDay() : date.atStartOfDay();
+        } else {
+            dateTime = date.atTime(hour, minute, second, nano);
         }
-        // if no value was not returned, throws exception
-        throw new FitsCardDateValueUnknownFormatException(text + " has unknown date format");
+        return new FitsCardDateValue(dateTime, formatIndex);
+    }
+
+    /**
+     * Returns end of year starting at given index (4 digits or sign followed by at most 9 digits, plus sign is required for more than 4 digits)
+     *
+     * @param text text representation of date
+     * @param from index, where year starts
+     * @return end of year (exclusive), -1 if there is not valid year
+     */
+    private static int getYearEnd(String text, int from) {
+        int index = from;
+        char sign = from < text.length() ? text.charAt(from) : 0;
+        if (sign == '+' || sign == '-') {
+            index++;
+        }
+        int digitsStart = index;
+        while (index < text.length() && isDigit(text.charAt(index))) {
+            index++;
+        }
+        int countDigits = index - digitsStart;
+        if (countDigits < YEAR_DIGITS || countDigits > MAX_YEAR_DIGITS || (sign == '+' && countDigits == YEAR_DIGITS) || (digitsStart == from && countDigits != YEAR_DIGITS)) {
+            return -1;
+        }
+        return index;
+    }
+
+    /**
+     * Returns date with given year and month and day (2 digits each) read from given indexes, invalid day of month is changed to last day of month
+     *
+     * @param text       text representation of date
+     * @param year       year of date
+     * @param monthIndex index of month
+     * @param dayIndex   index of day
+     * @return date, null if month or day are not valid
+     */
+    private static LocalDate createDate(String text, int year, int monthIndex, int dayIndex) {
+        int month = getDigits(text, monthIndex, monthIndex + 2);
+        int day = getDigits(text, dayIndex, dayIndex + 2);
+        if (month < 1 || month > 12 || day < 1 || day > 31) {
+            return null;
+        }
+        LocalDate firstDay = LocalDate.of(year, month, 1);
+        return firstDay.withDayOfMonth(Math.min(day, firstDay.lengthOfMonth()));
+    }
+
+    /**
+     * Checks if there is given separator at given index and two digits before it
+     *
+     * @param text      text representation of date
+     * @param index     index of separator
+     * @param separator separator character
+     * @return true if there is given separator at given index and two digits before it, otherwise false
+     */
+    private static boolean isDateSeparator(String text, int index, char separator) {
+        return index >= 2 && index < text.length() && text.charAt(index) == separator && isDigit(text.charAt(index - 1)) && isDigit(text.charAt(index - 2));
+    }
+
+    /**
+     * Returns end of optional fraction of seconds (decimal point followed by at most 9 digits)
+     *
+     * @param text text representation of date
+     * @param from index, where fraction starts
+     * @return end of fraction (exclusive), if there is no fraction, returns from
+     */
+    private static int getFractionEnd(String text, int from) {
+        if (from >= text.length() || text.charAt(from) != '.') {
+            return from;
+        }
+        int index = from + 1;
+        while (index < text.length() && index - from - 1 < MAX_FRACTION_DIGITS && isDigit(text.charAt(index))) {
+            index++;
+        }
+        return index;
+    }
+
+    /**
+     * Returns nanoseconds from fraction of seconds
+     *
+     * @param text text representation of date
+     * @param from index of decimal point (or end of text if there is no fraction)
+     * @param to   end of fraction (exclusive)
+     * @return nanoseconds from fraction of seconds
+     */
+    private static int getNanos(String text, int from, int to) {
+        int nano = 0;
+        for (int i = from + 1; i < from + 1 + MAX_FRACTION_DIGITS; i++) {
+            nano = nano * 10 + (i < to ? text.charAt(i) - '0' : 0);
+        }
+        return nano;
+    }
+
+    /**
+     * Returns value of digits (optionally with sign) in given range, if value is bigger than 999999999, returns -1
+     *
+     * @param text text representation of date
+     * @param from begin of range
+     * @param to   end of range (exclusive)
+     * @return value of digits in given range
+     */
+    private static int getDigits(String text, int from, int to) {
+        boolean negative = text.charAt(from) == '-';
+        if (negative || text.charAt(from) == '+') {
+            from++;
+        }
+        int value = 0;
+        for (int i = from; i < to; i++) {
+            if (value > 99999999) {
+                return -1;
+            }
+            value = value * 10 + text.charAt(i) - '0';
+        }
+        return negative ? -value : value;
+    }
+
+    /**
+     * Checks if given range contains only digits
+     *
+     * @param text text representation of date
+     * @param from begin of range
+     * @param to   end of range (exclusive)
+     * @return true if given range is inside of text and contains only digits, otherwise false
+     */
+    private static boolean isDigits(String text, int from, int to) {
+        if (to > text.length()) {
+            return false;
+        }
+        for (int i = from; i < to; i++) {
+            if (!isDigit(text.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Checks if given character is digit
+     *
+     * @param ch character to check
+     * @return true if given character is digit, otherwise false
+     */
+    private static boolean isDigit(char ch) {
+        return ch >= '0' && ch <= '9';
     }
 
     /**
@@ -81,7 +325,7 @@ public class FitsCardDateValue {
      * @return new data value created from given julian day
      */
     public static FitsCardDateValue createFromJulianDay(double julianDay) {
-        FitsCardDateValue newDateValue = new FitsCardDateValue();
+        FitsCardDateValue newDateValue = new FitsCardDateValue(JULIAN_DAY_BASE, 0);
         newDateValue.originJD = julianDay;
         double jdn = Math.floor(julianDay + 0.5);
         double fraction = (julianDay + 0.5) % 1;
@@ -103,7 +347,7 @@ public class FitsCardDateValue {
         int second = (int) (fraction * 60);
         fraction = fraction * 60 - second;
         int nano = (int) (fraction * 1000000000);
-        newDateValue.date = LocalDateTime.parse("2016-01-01T00:00:00").withDayOfMonth(day).withMonth(month).withYear(year).withHour(hour).withMinute(minute).withSecond(second).withNano(nano);
+        newDateValue.date = JULIAN_DAY_BASE.withDayOfMonth(day).withMonth(month).withYear(year).withHour(hour).withMinute(minute).withSecond(second).withNano(nano);
         if (newDateValue.date.getNano() == 999999999) // Fix some flooring problems
         {
             newDateValue.date = newDateValue.date.plusNanos(1);
@@ -231,8 +475,8 @@ public class FitsCardDateValue {
     public void setFormat(String format) throws FitsCardDateValueUnknownFormatException {
         List<String> acceptedFormats = getAcceptableFormats();
         if (acceptedFormats.contains(format)) {
-            formatter = createDateTimeFormatter(format);
             formatIndex = acceptedFormats.indexOf(format);
+            formatter = formatters[formatIndex];
             updateValueInOwner();
         } else {
             throw new FitsCardDateValueUnknownFormatException("Unknown format");
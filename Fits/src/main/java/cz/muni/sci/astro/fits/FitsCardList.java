@@ -0,0 +1,549 @@
+package cz.muni.sci.astro.fits;
+
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.ConcurrentModificationException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.Set;
+
+/**
+ * Represents list of cards in FITS header, cards read from file are kept as raw records and created only when they are read
+ * Cards are stored in gap buffer, so repeated inserts and removals around same position (e.g. before END) do not shift whole list
+ *
+ * @author Jan Hlava, 395986
+ */
+class FitsCardList extends AbstractList<FitsCard> implements RandomAccess {
+    private static final byte[] CONTINUE_KEYWORD = "CONTINUE".getBytes(StandardCharsets.US_ASCII);
+    private static final int NO_RECORD = -1;
+    private static final int DEFAULT_CAPACITY = 10;
+
+    private final byte[] rawRecords;
+    private final int countRawRecords;
+    private final FitsCardTokenizer tokenizer;
+    private FitsCard[] cards;
+    private int[] records;
+    private int size;
+    private int gapStart;
+    private int gapEnd;
+    private int version;
+    private int structureVersion;
+    private int keywordVersion;
+    private Map<String, int[]> keywordIndex;
+
+    /**
+     * Creates new empty list of cards
+     */
+    FitsCardList() {
+        rawRecords = new byte[0];
+        countRawRecords = 0;
+        tokenizer = new FitsCardTokenizer(rawRecords);
+        cards = new FitsCard[DEFAULT_CAPACITY];
+        records = new int[DEFAULT_CAPACITY];
+        gapEnd = DEFAULT_CAPACITY;
+    }
+
+    /**
+     * Creates new list of cards containing given cards
+     *
+     * @param cards cards, which should be in list
+     */
+    FitsCardList(Collection<FitsCard> cards) {
+        this();
+        ensureGap(cards.size());
+        for (FitsCard card : cards) {
+            add(card);
+        }
+    }
+
+    /**
+     * Creates new list of cards from raw records of header (cards are not created, only positions of records are found)
+     *
+     * @param rawRecords      raw records of header (every record has FitsFile.CARD_LENGTH bytes)
+     * @param countRawRecords count of valid records in rawRecords
+     * @throws FitsCardBadFormatException if records have bad structure
+     */
+    FitsCardList(byte[] rawRecords, int countRawRecords) throws FitsCardBadFormatException {
+        this(rawRecords, countRawRecords, null);
+    }
+
+    /**
+     * Creates new list of cards from raw records of header, which contains only cards with given keywords and structural cards (SIMPLE, BITPIX, NAXIS, NAXISn and END)
+     *
+     * @param rawRecords      raw records of header (every record has FitsFile.CARD_LENGTH bytes)
+     * @param countRawRecords count of valid records in rawRecords
+     * @param keywords        names of keywords, which should be kept in list, null if all cards should be kept
+     * @throws FitsCardBadFormatException if records have bad structure
+     */
+    FitsCardList(byte[] rawRecords, int countRawRecords, Set<String> keywords) throws FitsCardBadFormatException {
+        this.rawRecords = rawRecords;
+        this.countRawRecords = countRawRecords;
+        tokenizer = new FitsCardTokenizer(rawRecords);
+        cards = new FitsCard[Math.max(countRawRecords, DEFAULT_CAPACITY)];
+        records = new int[cards.length];
+        for (int record = 0; record < countRawRecords; record++) {
+            if (!isContinueRecord(record)) {
+                if (keywords == null || isProjectedEntry(getRecord(record), keywords)) {
+                    records[size] = record;
+                    size++;
+                }
+            } else if (record == 0) {
+                throw new FitsCardBadFormatException("Keyword Continue cannot be first");
+            }
+        }
+        gapStart = size;
+        gapEnd = cards.length;
+    }
+
+    /**
+     * Returns card with given index, if card was not created yet, it creates it from raw record
+     *
+     * @param index index of card
+     * @return card with given index
+     * @throws IllegalStateException if raw record of card has bad format
+     */
+    @Override
+    public FitsCard get(int index) {
+        checkIndex(index);
+        try {
+            return materialize(index);
+        } catch (FitsCardBadFormatException exc) {
+            throw new IllegalStateException(exc.getMessage(), exc);
+        }
+    }
+
+    /**
+     * Returns count of cards in list
+     *
+     * @return count of cards in list
+     */
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Replaces card on given index
+     *
+     * @param index index of card to replace
+     * @param card  new card
+     * @return original card on given index
+     */
+    @Override
+    public FitsCard set(int index, FitsCard card) {
+        FitsCard original = get(index);
+        int position = getPosition(index);
+        cards[position] = card;
+        records[position] = NO_RECORD;
+        card.setOwner(this);
+        modCount++;
+        structureChanged();
+        return original;
+    }
+
+    /**
+     * Inserts card to given index
+     *
+     * @param index index, where card should be inserted
+     * @param card  card to insert
+     */
+    @Override
+    public void add(int index, FitsCard card) {
+        if (index < 0 || index > size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+        moveGap(index);
+        ensureGap(1);
+        cards[gapStart] = card;
+        records[gapStart] = NO_RECORD;
+        card.setOwner(this);
+        gapStart++;
+        size++;
+        modCount++;
+        structureChanged();
+    }
+
+    /**
+     * Removes card from given index
+     *
+     * @param index index of card to remove
+     * @return removed card
+     */
+    @Override
+    public FitsCard remove(int index) {
+        FitsCard removed = get(index);
+        moveGap(index);
+        cards[gapEnd] = null;
+        gapEnd++;
+        size--;
+        modCount++;
+        structureChanged();
+        return removed;
+    }
+
+    /**
+     * Returns index of first occurrence of given card (cards, which were not created yet, are skipped - they cannot be equal to any card)
+     *
+     * @param object card to search
+     * @return index of first occurrence of given card, -1 if list does not contain it
+     */
+    @Override
+    public int indexOf(Object object) {
+        for (int i = 0; i < size; i++) {
+            FitsCard card = cards[getPosition(i)];
+            if (card != null && card.equals(object)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns index of last occurrence of given card (cards, which were not created yet, are skipped - they cannot be equal to any card)
+     *
+     * @param object card to search
+     * @return index of last occurrence of given card, -1 if list does not contain it
+     */
+    @Override
+    public int lastIndexOf(Object object) {
+        for (int i = size - 1; i >= 0; i--) {
+            FitsCard card = cards[getPosition(i)];
+            if (card != null && card.equals(object)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Checks if list contains given card
+     *
+     * @param object card to search
+     * @return true if list contains given card, otherwise false
+     */
+    @Override
+    public boolean contains(Object object) {
+        return indexOf(object) >= 0;
+    }
+
+    /**
+     * Removes first occurrence of given card
+     *
+     * @param object card to remove
+     * @return true if card was removed, otherwise false
+     */
+    @Override
+    public boolean remove(Object object) {
+        int index = indexOf(object);
+        if (index >= 0) {
+            remove(index);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Returns keyword name of card with given index, card is not created for this purpose
+     *
+     * @param index index of card
+     * @return keyword name of card with given index
+     */
+    String getKeywordName(int index) {
+        checkIndex(index);
+        int position = getPosition(index);
+        if (cards[position] != null) {
+            return cards[position].getKeywordName();
+        }
+        return FitsCard.getKeywordName(getRecord(records[position]));
+    }
+
+    /**
+     * Returns version of list, it is changed whenever card is added, removed, replaced or changed
+     *
+     * @return version of list
+     */
+    int getVersion() {
+        return version;
+    }
+
+    /**
+     * Returns structural version of list, it is changed whenever card is added, removed or replaced, keyword of some card is changed or value of card affecting structure of header (BITPIX, NAXIS, IMAGETYP) is changed
+     *
+     * @return structural version of list
+     */
+    int getStructureVersion() {
+        return structureVersion;
+    }
+
+    /**
+     * Notifies list, that given card from list was changed
+     *
+     * @param card           changed card
+     * @param keywordChanged true if keyword of card was changed, otherwise false
+     */
+    void cardChanged(FitsCard card, boolean keywordChanged) {
+        if (keywordChanged) {
+            keywordVersion++;
+            structureChanged();
+            return;
+        }
+        version++;
+        switch (card.getKeyword()) {
+            case BITPIX:
+            case NAXIS:
+            case IMAGETYP:
+                structureVersion++;
+                break;
+            default:
+        }
+    }
+
+    /**
+     * Marks structure of list as changed, keyword index is dropped
+     */
+    private void structureChanged() {
+        version++;
+        structureVersion++;
+        keywordIndex = null;
+    }
+
+    /**
+     * Returns cards with given keyword name, cards are found in keyword index (it is built on first search after modification of list or keyword of some card)
+     *
+     * @param keywordName keyword name, which should cards have
+     * @return read-only view of cards with given keyword name, it is valid until cards are added, removed or replaced or keyword of some card in list is changed
+     */
+    List<FitsCard> getCardsWithKeyword(String keywordName) {
+        if (keywordIndex == null) {
+            buildKeywordIndex();
+        }
+        int[] positions = keywordIndex.get(keywordName);
+        if (positions == null) {
+            return Collections.emptyList();
+        }
+        return new KeywordView(positions);
+    }
+
+    /**
+     * Builds keyword index - for every keyword name it keeps count of cards (first item) followed by positions of cards
+     */
+    private void buildKeywordIndex() {
+        Map<String, int[]> index = new HashMap<>();
+        for (int i = 0; i < size; i++) {
+            String keywordName = getKeywordName(i);
+            int[] positions = index.get(keywordName);
+            if (positions == null) {
+                positions = new int[2];
+                index.put(keywordName, positions);
+            } else if (positions[0] + 1 == positions.length) {
+                positions = Arrays.copyOf(positions, positions.length * 2);
+                index.put(keywordName, positions);
+            }
+            positions[0]++;
+            positions[positions[0]] = i;
+        }
+        keywordIndex = index;
+    }
+
+    /**
+     * Creates all cards, which were not created yet
+     *
+     * @throws FitsCardBadFormatException if raw record of some card has bad format
+     */
+    void materializeAll() throws FitsCardBadFormatException {
+        for (int i = 0; i < size; i++) {
+            materialize(i);
+        }
+    }
+
+    /**
+     * Returns card with given index, if card was not created yet, it creates it from raw record (and attaches all following CONTINUE records)
+     *
+     * @param index index of card
+     * @return card with given index
+     * @throws FitsCardBadFormatException if raw record of card has bad format
+     */
+    private FitsCard materialize(int index) throws FitsCardBadFormatException {
+        int position = getPosition(index);
+        if (cards[position] == null) {
+            int record = records[position];
+            FitsCard card = new FitsCard(getRecord(record));
+            if (record + 1 < countRawRecords && isContinueRecord(record + 1)) {
+                List<FitsCard> continueCards = new ArrayList<>();
+                while (++record < countRawRecords && isContinueRecord(record)) {
+                    continueCards.add(new FitsCard(getRecord(record)));
+                }
+                FitsLongStringCodec.join(card, continueCards);
+            }
+            card.setOwner(this);
+            cards[position] = card;
+        }
+        return cards[position];
+    }
+
+    /**
+     * Returns tokenizer set to raw record with given index
+     *
+     * @param record index of record
+     * @return tokenizer set to raw record with given index
+     */
+    private FitsCardTokenizer getRecord(int record) {
+        return tokenizer.reset(record * FitsFile.CARD_LENGTH);
+    }
+
+    /**
+     * Checks if given entry should be kept in projection (it has structural keyword or one of given keywords)
+     *
+     * @param entry    tokenizer set to the beginning of entry
+     * @param keywords names of keywords, which should be kept in projection
+     * @return true if given entry should be kept in projection, otherwise false
+     */
+    static boolean isProjectedEntry(FitsCardTokenizer entry, Set<String> keywords) {
+        switch (FitsKeywordResolver.resolve(entry)) {
+            case SIMPLE:
+            case BITPIX:
+            case NAXIS:
+            case NAXISn:
+            case END:
+                return true;
+            default:
+                return keywords.contains(FitsCard.getKeywordName(entry));
+        }
+    }
+
+    /**
+     * Checks if raw record with given index has keyword CONTINUE
+     *
+     * @param record index of record
+     * @return true if raw record with given index has keyword CONTINUE, otherwise false
+     */
+    private boolean isContinueRecord(int record) {
+        int offset = record * FitsFile.CARD_LENGTH;
+        for (int i = 0; i < CONTINUE_KEYWORD.length; i++) {
+            if (rawRecords[offset + i] != CONTINUE_KEYWORD[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns position in arrays of card with given index (cards after gap are shifted by length of gap)
+     *
+     * @param index index of card
+     * @return position in arrays of card with given index
+     */
+    private int getPosition(int index) {
+        return index < gapStart ? index : index + gapEnd - gapStart;
+    }
+
+    /**
+     * Moves gap, so it starts at given index (only cards between old and new position of gap are moved)
+     *
+     * @param index index, where gap should start
+     */
+    private void moveGap(int index) {
+        if (index < gapStart) {
+            int count = gapStart - index;
+            System.arraycopy(cards, index, cards, gapEnd - count, count);
+            System.arraycopy(records, index, records, gapEnd - count, count);
+            Arrays.fill(cards, index, Math.min(gapStart, gapEnd - count), null);
+            gapEnd -= count;
+            gapStart = index;
+        } else if (index > gapStart) {
+            int count = index - gapStart;
+            System.arraycopy(cards, gapEnd, cards, gapStart, count);
+            System.arraycopy(records, gapEnd, records, gapStart, count);
+            Arrays.fill(cards, Math.max(gapEnd, index), gapEnd + count, null);
+            gapEnd += count;
+            gapStart = index;
+        }
+    }
+
+    /**
+     * Ensures that gap can hold given count of cards, arrays are enlarged if needed
+     *
+     * @param count desired count of free positions in gap
+     */
+    private void ensureGap(int count) {
+        if (gapEnd - gapStart < count) {
+            int newCapacity = Math.max(size + count, cards.length + (cards.length >> 1));
+            int countAfterGap = cards.length - gapEnd;
+            FitsCard[] newCards = new FitsCard[newCapacity];
+            int[] newRecords = new int[newCapacity];
+            System.arraycopy(cards, 0, newCards, 0, gapStart);
+            System.arraycopy(records, 0, newRecords, 0, gapStart);
+            System.arraycopy(cards, gapEnd, newCards, newCapacity - countAfterGap, countAfterGap);
+            System.arraycopy(records, gapEnd, newRecords, newCapacity - countAfterGap, countAfterGap);
+            cards = newCards;
+            records = newRecords;
+            gapEnd = newCapacity - countAfterGap;
+        }
+    }
+
+    /**
+     * Checks if given index is in range
+     *
+     * @param index index to check
+     * @throws IndexOutOfBoundsException if index is out of range (index < 0 || index >= size())
+     */
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+    }
+
+    /**
+     * Represents read-only view of cards with same keyword name
+     */
+    private class KeywordView extends AbstractList<FitsCard> implements RandomAccess {
+        private final int[] positions;
+        private final int expectedModCount;
+        private final int expectedKeywordVersion;
+
+        /**
+         * Creates new view of cards on given positions
+         *
+         * @param positions count of cards (first item) followed by positions of cards
+         */
+        KeywordView(int[] positions) {
+            this.positions = positions;
+            expectedModCount = FitsCardList.this.modCount;
+            expectedKeywordVersion = keywordVersion;
+        }
+
+        /**
+         * Returns card with given index in view
+         *
+         * @param index index of card in view
+         * @return card with given index in view
+         * @throws ConcurrentModificationException if cards were added, removed or replaced or keyword of some card in list was changed after view was created
+         */
+        @Override
+        public FitsCard get(int index) {
+            if (index < 0 || index >= size()) {
+                throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size());
+            }
+            if (FitsCardList.this.modCount != expectedModCount || keywordVersion != expectedKeywordVersion) {
+                throw new ConcurrentModificationException();
+            }
+            return FitsCardList.this.get(positions[index + 1]);
+        }
+
+        /**
+         * Returns count of cards in view
+         *
+         * @return count of cards in view
+         */
+        @Override
+        public int size() {
+            return positions[0];
+        }
+    }
+}
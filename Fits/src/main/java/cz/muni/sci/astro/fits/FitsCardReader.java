@@ -0,0 +1,213 @@
+package cz.muni.sci.astro.fits;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Represents streaming reader of cards, it reads headers block by block and pushes cards to visitor without building whole headers
+ * Data units are skipped, reading can be stopped by visitor at any card
+ *
+ * @author Jan Hlava, 395986
+ */
+public final class FitsCardReader {
+    private final RandomAccessFile raf;
+    private final Set<String> keywords;
+    private final FitsCardVisitor visitor;
+    private final byte[] block;
+    private final FitsCardTokenizer tokenizer;
+    private final Map<Integer, Long> axes;
+    private final List<FitsCard> continueCards;
+    private Long bitpix;
+    private Long countNaxis;
+    private int hduIndex;
+
+    /**
+     * Creates new reader
+     *
+     * @param raf      RandomAccessFile instance of FITS file with file pointer set to the beginning of file
+     * @param keywords names of keywords, which should be pushed to visitor (with structural cards), null if all cards should be pushed
+     * @param visitor  visitor, which gets cards
+     */
+    private FitsCardReader(RandomAccessFile raf, Set<String> keywords, FitsCardVisitor visitor) {
+        this.raf = raf;
+        this.keywords = keywords;
+        this.visitor = visitor;
+        block = new byte[FitsFile.BLOCK_LENGTH];
+        tokenizer = new FitsCardTokenizer(block);
+        axes = new HashMap<>();
+        continueCards = new ArrayList<>();
+    }
+
+    /**
+     * Reads all cards from given file and pushes them to given visitor
+     *
+     * @param file    FITS file
+     * @param visitor visitor, which gets cards
+     * @return true if all headers were read, false if reading was stopped by visitor
+     * @throws FitsException            if file has invalid format (only first HDU has to be valid, reading ends at first invalid HDU)
+     * @throws NullPointerException     if file or visitor is null
+     * @throws IllegalArgumentException if file is not found
+     */
+    public static boolean read(File file, FitsCardVisitor visitor) throws FitsException {
+        return read(file, null, visitor);
+    }
+
+    /**
+     * Reads cards with given keywords and structural cards (SIMPLE, BITPIX, NAXIS, NAXISn and END) from given file and pushes them to given visitor
+     * Records of other cards are skipped without creating cards
+     *
+     * @param file     FITS file
+     * @param keywords names of keywords, which should be pushed to visitor, null if all cards should be pushed
+     * @param visitor  visitor, which gets cards
+     * @return true if all headers were read, false if reading was stopped by visitor
+     * @throws FitsException            if file has invalid format (only first HDU has to be valid, reading ends at first invalid HDU)
+     * @throws NullPointerException     if file or visitor is null
+     * @throws IllegalArgumentException if file is not found
+     */
+    public static boolean read(File file, Set<String> keywords, FitsCardVisitor visitor) throws FitsException {
+        if (file == null) {
+            throw new NullPointerException("file is null");
+        } else if (visitor == null) {
+            throw new NullPointerException("visitor is null");
+        } else if (!file.exists()) {
+            throw new FitsFileException("file does not exists");
+        } else if (!FitsFile.isFitsFile(file)) {
+            throw new FitsFileException("file is not FITS file");
+        }
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+            return new FitsCardReader(raf, keywords, visitor).readHDUs();
+        } catch (FileNotFoundException exc) {
+            throw new IllegalArgumentException("File not found", exc);
+        } catch (IOException exc) {
+            throw new FitsFileException("Cannot read FITS file", exc);
+        }
+    }
+
+    /**
+     * Reads all HDUs until end of file, invalid HDU or stop of visitor
+     *
+     * @return true if all headers were read, false if reading was stopped by visitor
+     * @throws FitsException if first HDU is invalid
+     * @throws IOException   if cannot get length of file
+     */
+    private boolean readHDUs() throws FitsException, IOException {
+        while (raf.getFilePointer() < raf.length()) {
+            try {
+                if (!readHDU()) {
+                    return false;
+                }
+            } catch (FitsException exc) {
+                if (hduIndex == 0) {
+                    throw new FitsFileException("No valid FITS file: " + exc.getMessage(), exc);
+                }
+                return true;
+            }
+            hduIndex++;
+        }
+        return true;
+    }
+
+    /**
+     * Reads header of current HDU and skips its data unit
+     *
+     * @return true if whole header was read, false if reading was stopped by visitor
+     * @throws FitsException if header is invalid
+     */
+    private boolean readHDU() throws FitsException {
+        bitpix = null;
+        countNaxis = null;
+        axes.clear();
+        continueCards.clear();
+        FitsCard pendingCard = null;
+        boolean firstRecord = true;
+        try {
+            while (true) {
+                raf.readFully(block);
+                for (int i = 0; i < FitsFile.CARD_BLOCK_ENTRIES; i++) {
+                    tokenizer.reset(i * FitsFile.CARD_LENGTH);
+                    FitsKeyword keyword = FitsKeywordResolver.resolve(tokenizer);
+                    if (keyword == FitsKeyword.CONTINUE) {
+                        if (firstRecord) {
+                            throw new FitsCardBadFormatException("Keyword Continue cannot be first");
+                        } else if (pendingCard != null) {
+                            continueCards.add(new FitsCard(tokenizer));
+                        }
+                        continue;
+                    }
+                    firstRecord = false;
+                    if (pendingCard != null && !visitCard(pendingCard)) {
+                        return false;
+                    }
+                    pendingCard = null;
+                    if (keywords == null || FitsCardList.isProjectedEntry(tokenizer, keywords)) {
+                        pendingCard = new FitsCard(tokenizer);
+                    }
+                    if (keyword == FitsKeyword.END) {
+                        if (pendingCard != null && !visitCard(pendingCard)) {
+                            return false;
+                        }
+                        skipDataUnit();
+                        return true;
+                    }
+                }
+            }
+        } catch (IOException exc) {
+            throw new FitsFileException("Cannot read fits header", exc);
+        }
+    }
+
+    /**
+     * Joins collected CONTINUE cards to given card, remembers its structural values and pushes card to visitor
+     *
+     * @param card card to push
+     * @return true if reading should continue, false if reading should stop
+     * @throws FitsCardBadFormatException if given card cannot be continued
+     */
+    private boolean visitCard(FitsCard card) throws FitsCardBadFormatException {
+        if (!continueCards.isEmpty()) {
+            FitsLongStringCodec.join(card, continueCards);
+            continueCards.clear();
+        }
+        if (card.getDataType() == FitsKeywordsDataType.INT) {
+            if (card.getKeyword() == FitsKeyword.BITPIX && bitpix == null) {
+                bitpix = card.getLong();
+            } else if (card.getKeyword() == FitsKeyword.NAXIS && countNaxis == null) {
+                countNaxis = card.getLong();
+            } else if (card.getKeyword() == FitsKeyword.NAXISn) {
+                axes.putIfAbsent(card.getNParam(), card.getLong());
+            }
+        }
+        return visitor.visitCard(hduIndex, card);
+    }
+
+    /**
+     * Skips data unit of current HDU
+     *
+     * @throws FitsFileException if header does not contain structural keywords or data unit cannot be skipped
+     */
+    private void skipDataUnit() throws FitsFileException {
+        if (bitpix == null || countNaxis == null) {
+            throw new FitsFileException("Header does not contain keywords BITPIX and NAXIS");
+        }
+        long[] lengths = new long[(int) Math.max(countNaxis, 0)];
+        for (int i = 1; i <= lengths.length; i++) {
+            Long length = axes.get(i);
+            if (length == null) {
+                throw new FitsFileException("Header does not contain keyword NAXIS" + i);
+            }
+            lengths[i - 1] = length;
+        }
+        try {
+            raf.seek(raf.getFilePointer() + FitsHeaderDataUnit.getDataUnitLength(bitpix, lengths));
+        } catch (IOException exc) {
+            throw new FitsFileException("Cannot skip data unit", exc);
+        }
+    }
+}
@@ -0,0 +1,228 @@
+package cz.muni.sci.astro.fits;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Represents tokenizer of raw FITS card record, it works directly on bytes of header (only ASCII characters are decoded)
+ *
+ * @author Jan Hlava, 395986
+ */
+class FitsCardTokenizer {
+    private static final byte NON_ASCII_CHARACTER = (byte) 0xFF;
+
+    private final byte[] bytes;
+    private final int length;
+    private int offset;
+
+    /**
+     * Creates new tokenizer over given raw records
+     *
+     * @param bytes raw records (every record has FitsFile.CARD_LENGTH bytes)
+     */
+    FitsCardTokenizer(byte[] bytes) {
+        this.bytes = bytes;
+        length = FitsFile.CARD_LENGTH;
+    }
+
+    /**
+     * Creates new tokenizer over given card entry, characters outside of ASCII are kept as invalid characters
+     *
+     * @param entry card entry
+     */
+    FitsCardTokenizer(String entry) {
+        length = entry.length();
+        bytes = new byte[length];
+        for (int i = 0; i < length; i++) {
+            char ch = entry.charAt(i);
+            bytes[i] = ch < 128 ? (byte) ch : NON_ASCII_CHARACTER;
+        }
+    }
+
+    /**
+     * Moves tokenizer to record starting at given offset
+     *
+     * @param offset offset of record in raw records
+     * @return this tokenizer
+     */
+    FitsCardTokenizer reset(int offset) {
+        this.offset = offset;
+        return this;
+    }
+
+    /**
+     * Returns length of record
+     *
+     * @return length of record
+     */
+    int length() {
+        return length;
+    }
+
+    /**
+     * Returns character at given index of record
+     *
+     * @param index index in record
+     * @return character at given index of record
+     */
+    char charAt(int index) {
+        return (char) (bytes[offset + index] & 0xFF);
+    }
+
+    /**
+     * Returns index of first occurrence of given character in record, search starts at given index
+     *
+     * @param ch   character to find
+     * @param from index, where search starts
+     * @return index of first occurrence of given character, -1 if character was not found
+     */
+    int indexOf(char ch, int from) {
+        return indexOf(ch, from, length);
+    }
+
+    /**
+     * Returns index of first occurrence of given character in given range of record
+     *
+     * @param ch   character to find
+     * @param from index, where search starts
+     * @param to   index, where search ends (exclusive)
+     * @return index of first occurrence of given character, -1 if character was not found
+     */
+    int indexOf(char ch, int from, int to) {
+        for (int i = Math.max(from, 0); i < to; i++) {
+            if (charAt(i) == ch) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns index of first occurrence of given pair of characters in record, search starts at given index
+     *
+     * @param first  first character of pair
+     * @param second second character of pair
+     * @param from   index, where search starts
+     * @return index of first character of first occurrence of pair, -1 if pair was not found
+     */
+    int indexOf(char first, char second, int from) {
+        for (int i = Math.max(from, 0); i < length - 1; i++) {
+            if (charAt(i) == first && charAt(i + 1) == second) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns index of apostrophe closing literal, which starts at given index (doubled apostrophes are skipped)
+     *
+     * @param begin index of apostrophe opening literal
+     * @return index of apostrophe closing literal, -1 if literal is not closed
+     */
+    int indexOfLiteralEnd(int begin) {
+        int end = begin;
+        while (true) {
+            end = indexOf('\'', end + 1);
+            if (end != -1 && end < length - 1 && charAt(end + 1) == '\'') {
+                end++;
+            } else {
+                return end;
+            }
+        }
+    }
+
+    /**
+     * Checks if given range of record contains only spaces and control characters
+     *
+     * @param from begin of range
+     * @param to   end of range (exclusive)
+     * @return true if given range contains only spaces and control characters, otherwise false
+     */
+    boolean isBlank(int from, int to) {
+        return trimStart(from, to) == to;
+    }
+
+    /**
+     * Returns index of first character in given range, which is not space or control character
+     *
+     * @param from begin of range
+     * @param to   end of range (exclusive)
+     * @return index of first character, which is not space or control character, if there is not any, returns to
+     */
+    int trimStart(int from, int to) {
+        while (from < to && charAt(from) <= ' ') {
+            from++;
+        }
+        return from;
+    }
+
+    /**
+     * Returns end of given range without trailing spaces and control characters
+     *
+     * @param from begin of range
+     * @param to   end of range (exclusive)
+     * @return end of given range without trailing spaces and control characters
+     */
+    int trimEnd(int from, int to) {
+        while (to > from && charAt(to - 1) <= ' ') {
+            to--;
+        }
+        return to;
+    }
+
+    /**
+     * Returns end of given range without trailing whitespaces (same as regex \s+$)
+     *
+     * @param from begin of range
+     * @param to   end of range (exclusive)
+     * @return end of given range without trailing whitespaces
+     */
+    int stripTrailingWhitespaces(int from, int to) {
+        while (to > from && isWhitespace(charAt(to - 1))) {
+            to--;
+        }
+        return to;
+    }
+
+    /**
+     * Returns string from given range of record
+     *
+     * @param from begin of range
+     * @param to   end of range (exclusive)
+     * @return string from given range of record
+     */
+    String substring(int from, int to) {
+        return new String(bytes, offset + from, to - from, StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * Returns whole record as string, every byte is kept as one character (so record can be written back byte by byte)
+     *
+     * @return whole record as string
+     */
+    String rawRecord() {
+        return new String(bytes, offset, length, StandardCharsets.ISO_8859_1);
+    }
+
+    /**
+     * Returns string from given range of record without leading and trailing spaces and control characters
+     *
+     * @param from begin of range
+     * @param to   end of range (exclusive)
+     * @return string from given range of record without leading and trailing spaces and control characters
+     */
+    String trimmedSubstring(int from, int to) {
+        from = trimStart(from, to);
+        return substring(from, trimEnd(from, to));
+    }
+
+    /**
+     * Checks if given character is whitespace (same as regex \s)
+     *
+     * @param ch character to check
+     * @return true if given character is whitespace, otherwise false
+     */
+    private static boolean isWhitespace(char ch) {
+        return ch == ' ' || ch == '\t' || ch == '\n' || ch == '\u000B' || ch == '\f' || ch == '\r';
+    }
+}
@@ -0,0 +1,17 @@
+package cz.muni.sci.astro.fits;
+
+/**
+ * Interface for callbacks of streaming reading of cards (see FitsCardReader)
+ *
+ * @author Jan Hlava, 395986
+ */
+public interface FitsCardVisitor {
+    /**
+     * Visits card read from header
+     *
+     * @param hduIndex index of HDU, which contains card
+     * @param card     card read from header (CONTINUE cards are already appended)
+     * @return true if reading should continue, false if reading should stop
+     */
+    boolean visitCard(int hduIndex, FitsCard card);
+}
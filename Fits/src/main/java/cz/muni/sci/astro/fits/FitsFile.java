@@ -4,12 +4,16 @@ import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
 import java.nio.file.Path;
-import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
 
 /**
  * Represents FITS file structure
@@ -24,13 +28,20 @@ public class FitsFile implements AutoCloseable {
     public static final String BLANK_CARD_ENTRY = "                                                                                ";
     public static final String END_CARD_ENTRY = "END                                                                             ";
     public static final String CONTINUE_CARD_PREFIX = "CONTINUE  ";
+    private static final String SIMPLE_CARD_PREFIX = "SIMPLE  = ";
+    private static final int SCAN_READ_BLOCKS = 16;
+    private static final int MOVE_BUFFER_LENGTH = 1024 * 1024;
+    private static final String TEMP_FILE_SUFFIX = ".tmp";
 
     private File file;
     private List<FitsHeaderDataUnit> HDUs;
     private RandomAccessFile raf;
+    private boolean readOnly;
+    private int reservedCards;
+    private boolean damaged;
 
     /**
-     * Creates FITS file from given file
+     * Creates FITS file from given file, all cards in headers are created right away
      *
      * @param file FITS file
      * @throws FitsException            if file has invalid format
@@ -38,27 +49,115 @@ public class FitsFile implements AutoCloseable {
      * @throws IllegalArgumentException if file is not found
      */
     public FitsFile(File file) throws FitsException {
+        this(file, false);
+    }
+
+    /**
+     * Creates FITS file from given file
+     *
+     * @param file FITS file
+     * @param lazy if true, cards in headers are created only when they are read (useful if only few keywords are needed), otherwise all cards are created right away
+     * @throws FitsException            if file has invalid format
+     * @throws NullPointerException     if file is null
+     * @throws IllegalArgumentException if file is not found
+     */
+    public FitsFile(File file, boolean lazy) throws FitsException {
+        this(file, lazy, null, false);
+    }
+
+    /**
+     * Creates FITS file from given file, headers contain only cards with given keywords (and structural cards)
+     * File with journal of failed saving is refused, headers have to be restored first (see restoreHeaders)
+     *
+     * @param file     FITS file
+     * @param lazy     if true, cards in headers are created only when they are read, otherwise all cards are created right away
+     * @param keywords names of keywords, which should be kept in headers, null if all cards should be kept (otherwise file is opened read-only)
+     * @param readOnly if true, file is opened read-only and closed right after headers are read, headers cannot be changed
+     * @throws FitsException            if file has invalid format
+     * @throws NullPointerException     if file is null
+     * @throws IllegalArgumentException if file is not found
+     */
+    private FitsFile(File file, boolean lazy, Set<String> keywords, boolean readOnly) throws FitsException {
         if (file == null) {
             throw new NullPointerException("file is null");
         } else if (!file.exists()) {
             throw new FitsFileException("file does not exists");
-        } else if (!isFitsFile(file)) {
+        }
+        checkJournal(file);
+        if (!isFitsFile(file)) {
             throw new FitsFileException("file is not FITS file");
         }
         this.file = file;
+        this.readOnly = readOnly;
         HDUs = new ArrayList<>(1);
         try {
-            raf = new RandomAccessFile(file, "rw");
+            raf = new RandomAccessFile(file, keywords == null && !readOnly ? "rw" : "r");
             while (true) {
-                HDUs.add(new FitsHeaderDataUnit(raf));
+                HDUs.add(new FitsHeaderDataUnit(raf, lazy, keywords));
             }
         } catch (FileNotFoundException exc) {
             throw new IllegalArgumentException("File not found", exc);
         } catch (FitsException exc) {
             if (HDUs.isEmpty()) {
+                closeFile();
                 throw new FitsFileException("No valid FITS file: " + exc.getMessage(), exc);
             }
         }
+        if (readOnly) {
+            closeFile();
+            for (FitsHeaderDataUnit hdu : HDUs) {
+                hdu.getHeader().setReadOnly();
+            }
+        }
+    }
+
+    /**
+     * Checks if given file has journal of failed saving (see FitsSaveStrategy.JOURNALED), headers are never restored here (see restoreHeaders)
+     *
+     * @param file FITS file
+     * @throws FitsFileException if file has complete journal or journal cannot be read
+     */
+    private static void checkJournal(File file) throws FitsFileException {
+        try {
+            if (FitsHeaderJournal.isPending(FitsHeaderJournal.getJournalFile(file))) {
+                throw new FitsFileException("file has journal of failed saving, headers have to be restored first");
+            }
+        } catch (IOException exc) {
+            throw new FitsFileException("journal of failed saving cannot be read: " + exc.getMessage(), exc);
+        }
+    }
+
+    /**
+     * Opens FITS file from given file for reading, headers contain only cards with given keywords and structural cards (SIMPLE, BITPIX, NAXIS, NAXISn and END)
+     * Records of other cards are skipped without creating cards, so it is useful if only few keywords are needed, such file cannot be saved
+     *
+     * @param file     FITS file
+     * @param keywords names of keywords, which should be kept in headers
+     * @return FITS file with headers containing only cards with given keywords and structural cards
+     * @throws FitsException            if file has invalid format
+     * @throws NullPointerException     if file or keywords is null
+     * @throws IllegalArgumentException if file is not found
+     */
+    public static FitsFile open(File file, Set<String> keywords) throws FitsException {
+        if (keywords == null) {
+            throw new NullPointerException("keywords is null");
+        }
+        return new FitsFile(file, false, keywords, false);
+    }
+
+    /**
+     * Opens FITS file from given file only for reading headers, file is opened read-only and it is closed right after headers are read
+     * Returned file is detached snapshot of headers - lists of cards cannot be changed and file cannot be saved, HDU positions are kept
+     *
+     * @param file FITS file
+     * @param lazy if true, cards in headers are created only when they are read, otherwise all cards are created right away
+     * @return FITS file with read-only snapshot of headers
+     * @throws FitsException            if file has invalid format
+     * @throws NullPointerException     if file is null
+     * @throws IllegalArgumentException if file is not found
+     */
+    public static FitsFile openReadOnly(File file, boolean lazy) throws FitsException {
+        return new FitsFile(file, lazy, null, true);
     }
 
     /**
@@ -68,35 +167,46 @@ public class FitsFile implements AutoCloseable {
      * @return true if file is FITS file, otherwise false (test is simple, true does not mean that file is valid FITS file)
      */
     public static boolean isFitsFile(File file) {
-        byte[] card = new byte[CARD_LENGTH];
-        int read_bytes;
-        try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
-            read_bytes = raf.read(card);
-            String strCard = new String(card);
-            if (read_bytes != CARD_LENGTH || !strCard.startsWith("SIMPLE  = ")) {
-                return false;
-            }
-            long headers = 1;
-            while (read_bytes != -1) {
-                raf.seek(headers * BLOCK_LENGTH - CARD_LENGTH);
-                read_bytes = raf.read(card);
-                strCard = new String(card);
-                if (read_bytes != CARD_LENGTH) {
-                    raf.close();
+        byte[] blocks = new byte[SCAN_READ_BLOCKS * BLOCK_LENGTH];
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long position = 0;
+            while (true) {
+                int read = FitsHeader.readFully(channel, blocks, 0, blocks.length, position);
+                if (position == 0 && (read < CARD_LENGTH || !startsWith(blocks, 0, SIMPLE_CARD_PREFIX))) {
                     return false;
-                } else if (strCard.equals(BLANK_CARD_ENTRY) || strCard.equals(END_CARD_ENTRY)) {
-                    raf.close();
-                    return true;
                 }
-                headers++;
+                for (int blockEnd = BLOCK_LENGTH; blockEnd <= read; blockEnd += BLOCK_LENGTH) {
+                    if (startsWith(blocks, blockEnd - CARD_LENGTH, BLANK_CARD_ENTRY) || startsWith(blocks, blockEnd - CARD_LENGTH, END_CARD_ENTRY)) {
+                        return true;
+                    }
+                }
+                if (read < blocks.length) {
+                    return false;
+                }
+                position += read;
             }
-            raf.close();
-            return false;
-        } catch (IOException exc) {
+        } catch (IOException | InvalidPathException exc) {
             return false;
         }
     }
 
+    /**
+     * Checks if given bytes on given offset start with given ASCII string
+     *
+     * @param bytes  bytes to check
+     * @param offset offset in bytes, where check starts
+     * @param prefix ASCII string, which should be on offset
+     * @return true if bytes on given offset start with given string, otherwise false
+     */
+    private static boolean startsWith(byte[] bytes, int offset, String prefix) {
+        for (int i = 0; i < prefix.length(); i++) {
+            if (bytes[offset + i] != prefix.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     /**
      * Returns count of HDUs in this FITS file
      *
@@ -153,44 +263,346 @@ public class FitsFile implements AutoCloseable {
     public List<FitsCard> getCardsWithKeyword(String keyword) {
         List<FitsCard> result = new ArrayList<>();
         for (FitsHeaderDataUnit hdu : HDUs) {
-            result.addAll(hdu.getHeader().getCardsWithKeyword(keyword));
+            result.addAll(hdu.getHeader().getCardsWithKeywordView(keyword));
         }
         return result;
     }
 
     /**
-     * Try to save FITS file (first, you need setup new cards in HDUs). It creates backup in case of failure (return value is false)
+     * Try to save FITS file (first, you need setup new cards in HDUs), file is saved in place (see FitsSaveStrategy.IN_PLACE)
      *
      * @return true if saving was successful, false if saving failed
      */
     public boolean saveFile() {
+        return saveFile(FitsSaveStrategy.IN_PLACE);
+    }
+
+    /**
+     * Try to save FITS file (first, you need setup new cards in HDUs) with given strategy
+     * If no header was changed (see FitsHeader.isChanged), file is not written at all, file with journal of other failed saving is not saved (see restoreHeaders)
+     * Every header is serialized once for all steps of saving, serialized changed headers are fitted to their blocks with reserved cards (see setReservedCards)
+     * Cards of header are changed by reservation only after successful saving
+     * In place: if all headers fit in their blocks in file, only header blocks are rewritten in place, otherwise file is saved atomically
+     * Moving data units: like in place, but if headers do not fit their blocks, data units are moved within file (overlapping regions are handled) and then all headers are written
+     * if moving fails, file is damaged and it cannot be saved anymore (see isDamaged)
+     * Journaled: like in place, but original header blocks are stored in sidecar journal, which is removed after successful save
+     * if headers do not fit their blocks, file is saved atomically
+     * Atomic: whole file is written to temporary file in same directory, forced to disk and then it atomically replaces original file
+     *
+     * @param strategy strategy of saving
+     * @return true if saving was successful, false if saving failed
+     * @throws NullPointerException if strategy is null
+     */
+    public boolean saveFile(FitsSaveStrategy strategy) {
+        if (strategy == null) {
+            throw new NullPointerException("strategy is null");
+        } else if (readOnly || isProjected() || damaged || hasJournal()) {
+            return false; // journal of other failed saving has to be restored first
+        } else if (HDUs.stream().noneMatch(hdu -> hdu.getHeader().isChanged())) {
+            return true; // file already contains same headers
+        }
+        ByteBuffer[] headerBuffers = new ByteBuffer[HDUs.size()];
+        int[] countsReservedCards = new int[HDUs.size()];
+        for (int i = 0; i < headerBuffers.length; i++) {
+            FitsHeader header = HDUs.get(i).getHeader();
+            headerBuffers[i] = header.getSaveBuffer();
+            if (headerBuffers[i] == null) {
+                return false;
+            }
+            countsReservedCards[i] = HDUs.get(i).countReservedCards(reservedCards);
+            if (countsReservedCards[i] != 0) {
+                headerBuffers[i] = FitsHeaderSerializer.reserveRecords(headerBuffers[i], header.getCountSaveRecords(), countsReservedCards[i]);
+            }
+        }
+        boolean saved;
+        switch (strategy) {
+            case JOURNALED:
+                saved = saveFileJournaled(headerBuffers);
+                break;
+            case ATOMIC:
+                saved = saveFileAtomic(headerBuffers);
+                break;
+            case MOVE_DATA_UNITS:
+                saved = saveFileMovingDataUnits(headerBuffers);
+                break;
+            default:
+                saved = saveFileInPlace(headerBuffers);
+        }
+        if (saved) {
+            for (int i = 0; i < countsReservedCards.length; i++) {
+                HDUs.get(i).getHeader().applyReservedCards(countsReservedCards[i]); // cards match saved header then
+            }
+        }
+        return saved;
+    }
+
+    /**
+     * Try to save FITS file in place, headers are rewritten in place, if they do not fit their blocks, file is saved atomically
+     *
+     * @param headerBuffers serialized headers of HDUs
+     * @return true if saving was successful, false if saving failed
+     */
+    private boolean saveFileInPlace(ByteBuffer[] headerBuffers) {
+        if (!canSaveHeadersInPlace(headerBuffers)) {
+            return saveFileAtomic(headerBuffers);
+        }
+        for (int i = 0; i < headerBuffers.length; i++) {
+            if (!HDUs.get(i).saveHeaderInPlace(headerBuffers[i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Try to save FITS file in place, headers are rewritten in place, if they do not fit their blocks, data units are moved within file
+     * If moving of data units fails, file is marked as damaged (see isDamaged)
+     *
+     * @param headerBuffers serialized headers of HDUs
+     * @return true if saving was successful, false if saving failed
+     */
+    private boolean saveFileMovingDataUnits(ByteBuffer[] headerBuffers) {
+        if (canSaveHeadersInPlace(headerBuffers)) {
+            return saveFileInPlace(headerBuffers);
+        }
+        int countHDUs = HDUs.size();
+        long[] lengths = new long[countHDUs];
+        long[] positions = new long[countHDUs];
+        long position;
         try {
-            Path backupPath;
-            if (file.getParent() != null) {
-                backupPath = Paths.get(file.getParent(), file.getName() + ".old");
-            } else {
-                backupPath = Paths.get(file.getName() + ".old");
-            }
-            Files.copy(file.toPath(), backupPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.COPY_ATTRIBUTES).toFile();
-            RandomAccessFile backup = new RandomAccessFile(backupPath.toFile(), "r");
-            long beginHDUPosition = 0;
-            boolean changedEndHDUPosition = false;
-            long EndHDUPositionBeforeSaving;
-            for (FitsHeaderDataUnit hdu : HDUs) {
-                EndHDUPositionBeforeSaving = hdu.getHDUEndPosition();
-                if (!hdu.saveHDU(backup, beginHDUPosition, changedEndHDUPosition)) {
-                    backup.close();
-                    return false;
+            position = computeLayout(headerBuffers, lengths, positions);
+        } catch (IOException exc) {
+            return false;
+        }
+        damaged = true; // file is not consistent until all data units are moved and all headers are written
+        try {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(MOVE_BUFFER_LENGTH);
+            for (int i = 0; i < countHDUs; i++) { // data units moving towards the beginning are moved first, from the first one
+                if (positions[i] < HDUs.get(i).getDataUnitPosition()) {
+                    HDUs.get(i).moveDataUnit(positions[i], lengths[i], buffer);
+                }
+            }
+            for (int i = countHDUs - 1; i >= 0; i--) { // data units moving towards the end are moved then, from the last one
+                if (positions[i] > HDUs.get(i).getDataUnitPosition()) {
+                    HDUs.get(i).moveDataUnit(positions[i], lengths[i], buffer);
+                }
+            }
+            for (int i = 0; i < countHDUs; i++) {
+                HDUs.get(i).writeHeader(headerBuffers[i], positions[i] - headerBuffers[i].remaining());
+            }
+            raf.setLength(position);
+        } catch (IOException exc) {
+            return false;
+        }
+        damaged = false;
+        return true;
+    }
+
+    /**
+     * Try to save FITS file with journal, original header blocks are stored in journal and then headers are rewritten in place
+     * If rewriting fails, headers are restored from journal, journal is kept only if restoring fails too (see restoreHeaders)
+     * Saving is successful, when rewritten headers are forced to disk, journal which cannot be deleted then is only reported (see hasJournal)
+     * If headers do not fit their blocks, file is saved atomically
+     *
+     * @param headerBuffers serialized headers of HDUs
+     * @return true if saving was successful, false if saving failed
+     */
+    private boolean saveFileJournaled(ByteBuffer[] headerBuffers) {
+        if (!canSaveHeadersInPlace(headerBuffers)) {
+            return saveFileAtomic(headerBuffers);
+        }
+        File journal = FitsHeaderJournal.getJournalFile(file);
+        byte[][] rawBlocks = new byte[HDUs.size()][];
+        for (int i = 0; i < rawBlocks.length; i++) {
+            rawBlocks[i] = HDUs.get(i).getHeader().getRawBlocks();
+        }
+        try {
+            FitsHeaderJournal.write(journal, HDUs, headerBuffers, raf.length());
+            boolean saved = true;
+            for (int i = 0; i < headerBuffers.length; i++) {
+                if (!HDUs.get(i).saveHeaderInPlace(headerBuffers[i])) {
+                    saved = false;
+                    break;
+                }
+            }
+            if (saved) {
+                raf.getChannel().force(false);
+                journal.delete(); // headers are on disk, restoring skips journal of finished saving
+                return true;
+            }
+            FitsHeaderJournal.restore(journal, raf);
+            for (int i = 0; i < rawBlocks.length; i++) {
+                HDUs.get(i).getHeader().setRawBlocks(rawBlocks[i]);
+            }
+        } catch (IOException ignored) {
+        }
+        return false;
+    }
+
+    /**
+     * Restores headers of given FITS file from journal left by failed journaled saving (see FitsSaveStrategy.JOURNALED)
+     * File must not be opened for saving, incomplete journal is only deleted (file was not changed)
+     * Journal of finished saving (file already contains expected headers, but journal was not deleted) is only deleted too
+     *
+     * @param file FITS file
+     * @return true if headers were restored, false if file has no complete journal or saving was finished
+     * @throws IOException          if cannot read journal or write file
+     * @throws NullPointerException if file is null
+     */
+    public static boolean restoreHeaders(File file) throws IOException {
+        if (file == null) {
+            throw new NullPointerException("file is null");
+        }
+        File journal = FitsHeaderJournal.getJournalFile(file);
+        if (!journal.exists()) {
+            return false;
+        }
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            return FitsHeaderJournal.restore(journal, raf);
+        }
+    }
+
+    /**
+     * Try to save FITS file atomically, file is written to temporary file in same directory, forced to disk and moved over original file
+     * Original file is never changed, so it is kept whole, if saving fails
+     *
+     * @param headerBuffers serialized headers of HDUs
+     * @return true if saving was successful, false if saving failed
+     */
+    private boolean saveFileAtomic(ByteBuffer[] headerBuffers) {
+        Path path = file.toPath().toAbsolutePath();
+        Path tempPath = null;
+        try {
+            int countHDUs = HDUs.size();
+            long[] lengths = new long[countHDUs];
+            long[] positions = new long[countHDUs];
+            long[] beginPositions = new long[countHDUs];
+            ByteBuffer[] savedHeaders = new ByteBuffer[countHDUs];
+            computeLayout(headerBuffers, lengths, positions);
+            tempPath = Files.createTempFile(path.getParent(), path.getFileName().toString(), TEMP_FILE_SUFFIX);
+            try {
+                Files.setPosixFilePermissions(tempPath, Files.getPosixFilePermissions(path));
+            } catch (UnsupportedOperationException ignored) {
+            }
+            try (FileChannel channel = FileChannel.open(tempPath, StandardOpenOption.WRITE)) {
+                for (int i = 0; i < countHDUs; i++) {
+                    savedHeaders[i] = headerBuffers[i].duplicate();
+                    beginPositions[i] = positions[i] - headerBuffers[i].remaining();
+                    long headerPosition = beginPositions[i];
+                    while (headerBuffers[i].hasRemaining()) {
+                        headerPosition += channel.write(headerBuffers[i], headerPosition);
+                    }
+                    HDUs.get(i).copyDataUnit(channel, positions[i], lengths[i]);
+                }
+                channel.force(true);
+            }
+            closeFile(); // descriptor of replaced file would be kept in HDUs otherwise
+            boolean moved = false;
+            try {
+                Files.move(tempPath, path, StandardCopyOption.ATOMIC_MOVE);
+                moved = true;
+            } finally {
+                raf = new RandomAccessFile(file, "rw");
+                for (int i = 0; i < countHDUs; i++) {
+                    if (moved) {
+                        HDUs.get(i).setFile(raf, beginPositions[i], positions[i], savedHeaders[i]);
+                    } else {
+                        HDUs.get(i).setFile(raf);
+                    }
                 }
-                beginHDUPosition = hdu.getHDUEndPosition();
-                changedEndHDUPosition = beginHDUPosition != EndHDUPositionBeforeSaving;
             }
-            backup.close();
-            Files.delete(backupPath);
             return true;
         } catch (IOException exc) {
             return false;
+        } finally {
+            if (tempPath != null) {
+                try {
+                    Files.deleteIfExists(tempPath);
+                } catch (IOException ignored) {
+                }
+            }
+        }
+    }
+
+    /**
+     * Checks if all given serialized headers can be rewritten in place, so no data unit has to move
+     *
+     * @param headerBuffers serialized headers of HDUs
+     * @return true if all headers can be rewritten in place, otherwise false
+     */
+    private boolean canSaveHeadersInPlace(ByteBuffer[] headerBuffers) {
+        for (int i = 0; i < headerBuffers.length; i++) {
+            if (!HDUs.get(i).canSaveHeaderInPlace(headerBuffers[i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Computes layout of saved file - positions and lengths of data units following given serialized headers
+     *
+     * @param headerBuffers serialized headers of HDUs
+     * @param lengths       output array for counts of bytes following headers (data unit and bytes before next HDU or after last HDU)
+     * @param positions     output array for new positions of data units
+     * @return length of saved file
+     * @throws IOException if cannot get length of file
+     */
+    private long computeLayout(ByteBuffer[] headerBuffers, long[] lengths, long[] positions) throws IOException {
+        int countHDUs = HDUs.size();
+        long position = 0;
+        for (int i = 0; i < countHDUs; i++) {
+            FitsHeaderDataUnit hdu = HDUs.get(i);
+            long end = i + 1 < countHDUs ? HDUs.get(i + 1).getHDUBeginPosition() : raf.length(); // bytes after last HDU are kept
+            lengths[i] = Math.max(end - hdu.getDataUnitPosition(), 0);
+            position += headerBuffers[i].remaining();
+            positions[i] = position;
+            position += lengths[i];
+        }
+        return position;
+    }
+
+    /**
+     * Returns count of blank cards reserved before END, when header does not fit its blocks while saving
+     *
+     * @return count of reserved cards
+     */
+    public int getReservedCards() {
+        return reservedCards;
+    }
+
+    /**
+     * Sets count of blank cards reserved before END, when header does not fit its blocks while saving (0 means no reservation)
+     * Reserved cards are taken by cards added before END later (when reservation is used), so header can be saved in place without moving data units
+     *
+     * @param reservedCards count of reserved cards
+     * @throws IllegalArgumentException if reservedCards is negative
+     */
+    public void setReservedCards(int reservedCards) {
+        if (reservedCards < 0) {
+            throw new IllegalArgumentException("reservedCards is negative");
         }
+        this.reservedCards = reservedCards;
+    }
+
+    /**
+     * Checks if file was damaged by failed moving of data units while saving (see FitsSaveStrategy.MOVE_DATA_UNITS)
+     * Damaged file cannot be recovered and it cannot be saved anymore
+     *
+     * @return true if file was damaged, otherwise false
+     */
+    public boolean isDamaged() {
+        return damaged;
+    }
+
+    /**
+     * Checks if file has journal of saving (see FitsSaveStrategy.JOURNALED), it is left by failed saving or if it cannot be deleted after successful saving
+     * File with journal cannot be saved, journal is removed by restoring headers (see restoreHeaders)
+     *
+     * @return true if file has journal, otherwise false
+     */
+    public boolean hasJournal() {
+        return FitsHeaderJournal.getJournalFile(file).exists();
     }
 
     /**
@@ -200,12 +612,33 @@ public class FitsFile implements AutoCloseable {
      */
     public List<String> checkReadyToSave() {
         List<String> problems = new ArrayList<>();
+        if (readOnly) {
+            problems.add("File was opened read-only, so it cannot be saved.");
+        }
+        if (isProjected()) {
+            problems.add("File was opened only with some keywords, so it cannot be saved.");
+        }
+        if (damaged) {
+            problems.add("Moving of data units failed while saving, so file is damaged and it cannot be recovered.");
+        }
+        if (hasJournal()) {
+            problems.add("File has journal of saving, so it cannot be saved until journal is removed by restoring headers.");
+        }
         for (FitsHeaderDataUnit hdu : HDUs) {
             problems.addAll(hdu.getHeader().checkSaveHeader());
         }
         return problems;
     }
 
+    /**
+     * Checks if headers contain only some cards from file (see open)
+     *
+     * @return true if headers contain only some cards from file, otherwise false
+     */
+    private boolean isProjected() {
+        return !HDUs.isEmpty() && HDUs.get(0).getHeader().isProjected();
+    }
+
     /**
      * Checks if given object is equal to this object
      *
@@ -232,13 +665,22 @@ public class FitsFile implements AutoCloseable {
      */
     @Override
     public void close() {
+        closeFile();
+        file = null;
+        HDUs.clear();
+    }
+
+    /**
+     * Closes descriptor of FITS file, headers are kept
+     */
+    private void closeFile() {
         try {
-            raf.close();
+            if (raf != null) {
+                raf.close();
+            }
         } catch (IOException ignored) {
         } finally {
-            file = null;
             raf = null;
-            HDUs.clear();
         }
     }
 }
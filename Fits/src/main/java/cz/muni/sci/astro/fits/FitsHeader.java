@@ -1,8 +1,14 @@
 package cz.muni.sci.astro.fits;
 
+import java.io.EOFException;
 import java.io.IOException;
 import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
@@ -14,63 +20,169 @@ import java.util.stream.Collectors;
  * @author Jan Hlava, 395986
  */
 public class FitsHeader {
-    private List<FitsCard> cards;
+    private static final int FIRST_READ_BLOCKS = 4;
+    private static final int MAX_READ_BLOCKS = 64;
+    private final boolean projected;
+    private boolean readOnly;
+    private FitsCardList cards;
+    private List<String> savingProblems;
+    private int savingProblemsVersion;
+    private List<String> structureProblems;
+    private int structureProblemsVersion;
+    private byte[] rawBlocks;
+    private byte[] saveBlocks;
+    private int countSaveRecords;
+    private Boolean changed;
+    private Long fingerprint;
+    private int fingerprintVersion;
 
     /**
-     * Creates new Header from given RandomAccessFile
+     * Creates new Header from given RandomAccessFile, all cards are created right away
      *
      * @param raf RandomAccessFile instance of FITS file with file pointer set to the beginning of Header
      * @throws FitsFileException          if cannot read Header
      * @throws FitsCardBadFormatException if Card format is invalid
      */
     public FitsHeader(RandomAccessFile raf) throws FitsException {
-        cards = new ArrayList<>();
-        byte[] bytes = new byte[FitsFile.BLOCK_LENGTH];
-        String card;
+        this(raf, false);
+    }
+
+    /**
+     * Creates new Header from given RandomAccessFile
+     *
+     * @param raf  RandomAccessFile instance of FITS file with file pointer set to the beginning of Header
+     * @param lazy if true, header keeps raw header blocks and card is created only when it is read (bad format of card is then reported by IllegalStateException), otherwise all cards are created right away
+     * @throws FitsFileException          if cannot read Header
+     * @throws FitsCardBadFormatException if Card format is invalid
+     */
+    public FitsHeader(RandomAccessFile raf, boolean lazy) throws FitsException {
+        this(raf, lazy, null);
+    }
+
+    /**
+     * Creates new Header from given RandomAccessFile, which contains only cards with given keywords (and structural cards SIMPLE, BITPIX, NAXIS, NAXISn and END)
+     * Records of other cards are skipped without creating cards, such header cannot be saved
+     *
+     * @param raf      RandomAccessFile instance of FITS file with file pointer set to the beginning of Header
+     * @param lazy     if true, header keeps raw header blocks and card is created only when it is read, otherwise all cards are created right away
+     * @param keywords names of keywords, which should be kept in header, null if all cards should be kept
+     * @throws FitsFileException          if cannot read Header
+     * @throws FitsCardBadFormatException if Card format is invalid
+     */
+    FitsHeader(RandomAccessFile raf, boolean lazy, Set<String> keywords) throws FitsException {
+        projected = keywords != null;
+        byte[] blocks = new byte[FitsFile.BLOCK_LENGTH * FIRST_READ_BLOCKS];
+        int countRecords = 0;
+        int readBlocks = FIRST_READ_BLOCKS;
         try {
+            FileChannel channel = raf.getChannel();
+            long headerPosition = raf.getFilePointer();
             while (true) {
-                raf.readFully(bytes);
-                for (int i = 0; i < FitsFile.CARD_BLOCK_ENTRIES; i++) {
-                    card = new String(bytes, i * FitsFile.CARD_LENGTH, FitsFile.CARD_LENGTH);
-                    FitsCard fitsCardNew = new FitsCard(card);
-                    if (fitsCardNew.getKeyword() != FitsKeyword.CONTINUE) {
-                        cards.add(fitsCardNew);
-                        if (fitsCardNew.getKeyword() == FitsKeyword.END) {
-                            return;
+                int offset = countRecords * FitsFile.CARD_LENGTH;
+                if (offset + readBlocks * FitsFile.BLOCK_LENGTH > blocks.length) {
+                    blocks = Arrays.copyOf(blocks, offset + readBlocks * FitsFile.BLOCK_LENGTH);
+                }
+                int read = readFully(channel, blocks, offset, readBlocks * FitsFile.BLOCK_LENGTH, headerPosition + offset);
+                int countReadRecords = read / FitsFile.BLOCK_LENGTH * FitsFile.CARD_BLOCK_ENTRIES;
+                if (countReadRecords == 0) {
+                    throw new EOFException("Header does not end with keyword END");
+                }
+                for (int i = 0; i < countReadRecords; i++) {
+                    countRecords++;
+                    if (isEndRecord(blocks, countRecords - 1)) {
+                        int length = (countRecords + FitsFile.CARD_BLOCK_ENTRIES - 1) / FitsFile.CARD_BLOCK_ENTRIES * FitsFile.BLOCK_LENGTH;
+                        raf.seek(headerPosition + length);
+                        if (blocks.length > length) {
+                            blocks = Arrays.copyOf(blocks, length); // bytes of data unit read with header are not kept
                         }
-                    }
-                    // Value from CONTINUE keyword is attached to previous card
-                    else if (!cards.isEmpty()) {
-                        FitsCard fitsCard = cards.get(cards.size() - 1);
-                        if (fitsCard.getDataType() == FitsKeywordsDataType.LITERAL) {
-                            String value = fitsCard.getRValueString();
-                            String comment = fitsCard.getComment();
-                            if (value.endsWith("&")) {
-                                fitsCard.setRValue(value.substring(0, value.length() - 1) + fitsCardNew.getRValueString());
-                                fitsCard.incrementCountContinue();
-                                fitsCard.setComment(comment.substring(0, comment.length()) + fitsCardNew.getComment());
-                            } else {
-                                throw new FitsCardBadFormatException("Keyword Continue needs card which ends with &");
-                            }
-                        } else {
-                            throw new FitsCardBadFormatException("Keyword Continue needs card with literal data type");
+                        rawBlocks = blocks; // records of cards are kept in same array
+                        FitsCardList cardList = new FitsCardList(blocks, countRecords, keywords);
+                        if (!lazy) {
+                            cardList.materializeAll();
                         }
-                    } else {
-                        throw new FitsCardBadFormatException("Keyword Continue cannot be first");
+                        cards = cardList;
+                        return;
                     }
                 }
+                readBlocks = Math.min(2 * readBlocks, MAX_READ_BLOCKS);
             }
         } catch (IOException exc) {
             throw new FitsFileException("Cannot read fits header", exc);
         }
     }
 
+    /**
+     * Reads bytes from given position of channel to given array, it reads until given length is read or end of file is reached
+     *
+     * @param channel  channel of FITS file
+     * @param bytes    array for read bytes
+     * @param offset   offset in array, where read bytes should be stored
+     * @param length   count of bytes, which should be read
+     * @param position position in channel, where reading starts
+     * @return count of read bytes (less than length only at the end of file)
+     * @throws IOException if cannot read from channel
+     */
+    static int readFully(FileChannel channel, byte[] bytes, int offset, int length, long position) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes, offset, length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position() - offset) == -1) {
+                break;
+            }
+        }
+        return buffer.position() - offset;
+    }
+
+    /**
+     * Checks if raw record with given index has keyword END
+     *
+     * @param records raw records of header
+     * @param record  index of record
+     * @return true if raw record with given index has keyword END, otherwise false
+     */
+    private static boolean isEndRecord(byte[] records, int record) {
+        int offset = record * FitsFile.CARD_LENGTH;
+        for (int i = 0; i < FitsFile.KEYWORD_LENGTH; i++) {
+            if (records[offset + i] != FitsFile.END_CARD_ENTRY.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Checks if header contains only some cards from file (see FitsFile.open)
+     *
+     * @return true if header contains only some cards from file, otherwise false
+     */
+    boolean isProjected() {
+        return projected;
+    }
+
+    /**
+     * Checks if header is read-only snapshot (see FitsFile.openReadOnly)
+     *
+     * @return true if header is read-only snapshot, otherwise false
+     */
+    public boolean isReadOnly() {
+        return readOnly;
+    }
+
+    /**
+     * Makes header read-only snapshot, list of cards cannot be changed since then
+     */
+    void setReadOnly() {
+        readOnly = true;
+    }
+
     /**
      * Returns cards from this Header
      *
-     * @return cards from this Header
+     * @return cards from this Header (unmodifiable list, if header is read-only)
      */
     public List<FitsCard> getCards() {
+        if (readOnly) {
+            return Collections.unmodifiableList(cards);
+        }
         return cards;
     }
 
@@ -78,9 +190,208 @@ public class FitsHeader {
      * Sets new list of cards
      *
      * @param cards list of cards, which should be set
+     * @throws UnsupportedOperationException if header is read-only
      */
     public void setCards(List<FitsCard> cards) {
-        this.cards = cards;
+        if (readOnly) {
+            throw new UnsupportedOperationException("Header is read-only");
+        } else if (cards instanceof FitsCardList) {
+            this.cards = (FitsCardList) cards;
+        } else {
+            this.cards = new FitsCardList(cards);
+        }
+        savingProblems = null;
+        structureProblems = null;
+        changed = null;
+    }
+
+    /**
+     * Returns 64-bit fingerprint of save representation of header, it is computed again only if cards were changed
+     * Cards, which were not changed, are represented by their raw records, so fingerprint is computed even if header cannot be saved
+     *
+     * @return 64-bit fingerprint of save representation of header, null if some changed card cannot be saved
+     */
+    public Long getFingerprint() {
+        compareWithRawBlocks();
+        return fingerprint;
+    }
+
+    /**
+     * Returns 64-bit fingerprint of raw header in file (header as it was read from file or as it was last saved)
+     *
+     * @return 64-bit fingerprint of raw header in file
+     */
+    public long getOriginalFingerprint() {
+        return FitsHeaderSerializer.fingerprint(ByteBuffer.wrap(rawBlocks));
+    }
+
+    /**
+     * Returns raw header blocks in file (header as it was read from file or as it was last saved)
+     *
+     * @return raw header blocks in file (returned array must not be changed)
+     */
+    byte[] getRawBlocks() {
+        return rawBlocks;
+    }
+
+    /**
+     * Sets raw header blocks in file after header was saved
+     *
+     * @param rawBlocks raw header blocks of saved header (array must not be changed later)
+     */
+    void setRawBlocks(byte[] rawBlocks) {
+        this.rawBlocks = rawBlocks;
+        changed = null;
+    }
+
+    /**
+     * Sets raw header blocks in file after header was saved, bytes between position and limit of given buffer are copied (position is not changed)
+     *
+     * @param headerBuffer buffer with saved header
+     */
+    void setRawBlocks(ByteBuffer headerBuffer) {
+        if (changed != null && fingerprintVersion == cards.getVersion() && saveBlocks != null && headerBuffer.equals(ByteBuffer.wrap(saveBlocks))) {
+            rawBlocks = saveBlocks; // kept save representation was saved, so it does not have to be serialized again
+            changed = false;
+            return;
+        }
+        byte[] blocks = new byte[headerBuffer.remaining()];
+        headerBuffer.duplicate().get(blocks);
+        setRawBlocks(blocks);
+    }
+
+    /**
+     * Checks if bytes between position and limit of given buffer are same as raw header blocks in file (position is not changed)
+     *
+     * @param headerBuffer buffer with serialized header
+     * @return true if file already contains given header, otherwise false
+     */
+    boolean isSavedAs(ByteBuffer headerBuffer) {
+        return headerBuffer.equals(ByteBuffer.wrap(rawBlocks));
+    }
+
+    /**
+     * Checks if save representation of header differs from raw header in file
+     * Bytes are compared (fingerprint is not enough), cards which were not changed are represented by their raw records, so header with saving problems is not changed, if no card was changed
+     *
+     * @return true if header was changed, false if saving would write same bytes, which are already in file
+     */
+    public boolean isChanged() {
+        return compareWithRawBlocks();
+    }
+
+    /**
+     * Returns save representation of header as buffer, header is serialized only once until cards are changed
+     *
+     * @return new buffer ready for reading (position 0, limit at the end of header) wrapping save representation of header (it must not be changed), null if header cannot be saved
+     */
+    ByteBuffer getSaveBuffer() {
+        if (!canBeSaved()) {
+            return null;
+        }
+        compareWithRawBlocks();
+        return saveBlocks == null ? null : ByteBuffer.wrap(saveBlocks);
+    }
+
+    /**
+     * Returns count of records (cards including cards with keyword CONTINUE) of save representation of header, padding is not counted
+     *
+     * @return count of records of save representation of header, -1 if some changed card cannot be saved
+     */
+    int getCountSaveRecords() {
+        compareWithRawBlocks();
+        return saveBlocks == null ? -1 : countSaveRecords;
+    }
+
+    /**
+     * Compares save representation of header with raw header blocks in file and computes its fingerprint, result and save representation are kept until cards are changed or header is saved
+     *
+     * @return true if save representation differs from raw header blocks or some changed card cannot be saved, otherwise false
+     */
+    private boolean compareWithRawBlocks() {
+        if (changed == null || fingerprintVersion != cards.getVersion()) {
+            FitsHeaderSerializer serializer = new FitsHeaderSerializer();
+            ByteBuffer buffer = serializer.serialize(this);
+            fingerprint = buffer == null ? null : FitsHeaderSerializer.fingerprint(buffer);
+            changed = buffer == null || !isSavedAs(buffer);
+            if (buffer == null) {
+                saveBlocks = null;
+            } else if (changed) {
+                saveBlocks = new byte[buffer.remaining()];
+                buffer.get(saveBlocks);
+            } else {
+                saveBlocks = rawBlocks; // same bytes, they are not kept twice
+            }
+            countSaveRecords = serializer.getCountRecords();
+            fingerprintVersion = cards.getVersion();
+        }
+        return changed;
+    }
+
+    /**
+     * Returns count of reserved cards (blank cards without comment in last run of blank cards before END), which should be added to header, so it fits given capacity (cards are not changed)
+     * Reservation is used only if header is longer than capacity, reserved cards are removed (cards added before END take their records), if it is not enough, given count of reserved cards is added
+     *
+     * @param countRecords  count of records of save representation of header
+     * @param capacity      count of records, which header should fit in (records after END in last block are free)
+     * @param reservedCards count of reserved cards added, when header does not fit (0 means no reservation)
+     * @return count of reserved cards, which should be added (negative count should be removed from last run of reserved cards)
+     */
+    int countReservedCards(int countRecords, int capacity, int reservedCards) {
+        int endIndex = cards.size() - 1;
+        if (reservedCards == 0 || endIndex < 0 || cards.get(endIndex).getKeyword() != FitsKeyword.END) {
+            return 0;
+        } else if (countRecords > capacity) {
+            int runEnd = findReservedCardsRunEnd();
+            int runStart = runEnd;
+            while (runStart > 0 && isReservedCard(cards.get(runStart - 1))) {
+                runStart--;
+            }
+            return runEnd - runStart >= countRecords - capacity ? capacity - countRecords : reservedCards;
+        }
+        return 0;
+    }
+
+    /**
+     * Adds given count of reserved cards before END, negative count of reserved cards is removed from last run of reserved cards (see countReservedCards)
+     * It is used after header with reservation was saved, so cards match saved header
+     *
+     * @param count count of reserved cards to add
+     */
+    void applyReservedCards(int count) {
+        if (count > 0) {
+            for (int i = 0; i < count; i++) {
+                cards.add(cards.size() - 1, new FitsCard());
+            }
+        } else if (count < 0) {
+            int runEnd = findReservedCardsRunEnd();
+            for (int i = 0; i < -count; i++) {
+                cards.remove(runEnd - 1 - i);
+            }
+        }
+    }
+
+    /**
+     * Returns index after last reserved card before END (end of last run of reserved cards)
+     *
+     * @return index after last reserved card before END, 0 if there is no reserved card
+     */
+    private int findReservedCardsRunEnd() {
+        int runEnd = cards.size() - 1;
+        while (runEnd > 0 && !isReservedCard(cards.get(runEnd - 1))) {
+            runEnd--;
+        }
+        return runEnd;
+    }
+
+    /**
+     * Checks if given card is reserved card - blank card without comment
+     *
+     * @param card card to check
+     * @return true if card is reserved card, otherwise false
+     */
+    private static boolean isReservedCard(FitsCard card) {
+        return card.getKeyword() == FitsKeyword.EMPTY && card.getRValueString().isEmpty() && card.getIValueString().isEmpty() && card.getComment().isEmpty();
     }
 
     /**
@@ -90,7 +401,18 @@ public class FitsHeader {
      * @return cards with given keyword from HDU
      */
     public List<FitsCard> getCardsWithKeyword(String keyword) {
-        return cards.stream().filter(card -> card.getKeywordName().equals(keyword)).collect(Collectors.toList());
+        return new ArrayList<>(cards.getCardsWithKeyword(keyword));
+    }
+
+    /**
+     * Returns read-only view of cards with given keyword from HDU, cards are not copied
+     * View throws ConcurrentModificationException after cards are added to header, removed from header, set in header or keyword of card is changed
+     *
+     * @param keyword keyword, which should cards contains
+     * @return read-only view of cards with given keyword from HDU
+     */
+    public List<FitsCard> getCardsWithKeywordView(String keyword) {
+        return cards.getCardsWithKeyword(keyword);
     }
 
     /**
@@ -104,14 +426,63 @@ public class FitsHeader {
 
     /**
      * Checks if header can be saved and returns list of saving problems
+     * Result is kept until cards are changed, only changed cards are validated again and structural rules are checked again only if structure of header was changed
      *
      * @return list of saving problems
      */
     public List<String> checkSaveHeader() {
+        return new ArrayList<>(findCachedSavingProblems());
+    }
+
+    /**
+     * Returns saving problems of header, they are found again only if cards were changed (see checkSaveHeader)
+     *
+     * @return kept list of saving problems (it must not be changed)
+     */
+    private List<String> findCachedSavingProblems() {
+        if (savingProblems == null || savingProblemsVersion != cards.getVersion()) {
+            if (structureProblems == null || structureProblemsVersion != cards.getStructureVersion()) {
+                structureProblems = findStructureProblems();
+                structureProblemsVersion = cards.getStructureVersion();
+            }
+            savingProblems = findCardProblems();
+            savingProblems.addAll(structureProblems);
+            savingProblemsVersion = cards.getVersion();
+        }
+        return savingProblems;
+    }
+
+    /**
+     * Checks if header has no saving problems, result is kept until cards are changed (see checkSaveHeader)
+     *
+     * @return true if header can be saved, otherwise false
+     */
+    boolean canBeSaved() {
+        return findCachedSavingProblems().isEmpty();
+    }
+
+    /**
+     * Finds problems of single cards blocking to save header (cards keep results of their validation, so only changed cards are validated)
+     *
+     * @return list of saving problems of single cards
+     */
+    private List<String> findCardProblems() {
         List<String> problems = new ArrayList<>();
         for (FitsCard card : cards) {
-            problems.addAll(card.validate());
+            if (!card.isValid()) {
+                problems.addAll(card.validate());
+            }
         }
+        return problems;
+    }
+
+    /**
+     * Finds problems of header structure blocking to save header (positions of structural cards, unique, ordered and mandatory keywords)
+     *
+     * @return list of saving problems of header structure
+     */
+    private List<String> findStructureProblems() {
+        List<String> problems = new ArrayList<>();
         if (cards.size() < 4) {
             problems.add("Header must have at least 4 cards - SIMPLE, BITPIX, NAXIS and END.");
         } else {
@@ -123,12 +494,12 @@ public class FitsHeader {
             if (cards.get(1).getKeyword() != FitsKeyword.BITPIX) {
                 problems.add("Second keyword in the header must be BITPIX.");
             } else if (cards.get(1).getDataType() == FitsKeywordsDataType.INT) {
-                bitpixPositive = (int) cards.get(1).getRValue() > 0;
+                bitpixPositive = cards.get(1).getLong() > 0;
             }
             if (cards.get(2).getKeyword() != FitsKeyword.NAXIS) {
                 problems.add("Third keyword in the header must be NAXIS.");
-            } else if (cards.get(2).getDataType() == FitsKeywordsDataType.INT && (int) cards.get(2).getRValue() >= 0) {
-                naxis = (int) cards.get(2).getRValue();
+            } else if (cards.get(2).getDataType() == FitsKeywordsDataType.INT && cards.get(2).getLong() >= 0) {
+                naxis = (int) Math.min(cards.get(2).getLong(), Integer.MAX_VALUE);
                 if (naxis > 0 && !cards.get(3).getKeywordName().equals(FitsKeyword.NAXISn.toString().replace("n", "1"))) {
                     problems.add("If count of axises is bigger than zero, then after keyword " + cards.get(2).getKeywordName() + " must be keyword " + FitsKeyword.NAXISn.toString().replace("n", "1") + '.');
                 }
@@ -137,17 +508,19 @@ public class FitsHeader {
                 problems.add("Last keyword in the header must be END.");
             }
             FitsImageType imageType = getFitsImageType();
-            Set<String> keywordNames = new HashSet<>();
-            Set<FitsKeyword> mandatoryKeywordsMissing = new HashSet<>(FitsKeyword.getImageTypeMandatory(imageType));
-            Set<FitsKeyword> mandatoryNKeywordsMissing = new HashSet<>(FitsKeyword.getImageTypeNMandatory(imageType));
+            Set<String> keywordNames = new HashSet<>(); // names of custom and n keywords, other keywords are identified by keyword itself
+            Set<FitsKeyword> keywords = EnumSet.noneOf(FitsKeyword.class);
             for (int i = 0; i < cards.size(); i++) {
                 FitsCard card = cards.get(i);
-                mandatoryKeywordsMissing.remove(card.getKeyword());
-                mandatoryNKeywordsMissing.remove(card.getKeyword());
-                if (card.getKeyword().isUniqueHeaderKeyword() && keywordNames.contains(card.getKeywordName())) {
-                    problems.add("Keyword " + card.getKeywordName() + " is header unique keyword, but there are more keywords in the header.");
+                boolean duplicated;
+                if (card.getKeyword() == FitsKeyword.CUSTOM || card.getKeyword().isNKeyword()) {
+                    keywords.add(card.getKeyword());
+                    duplicated = !keywordNames.add(card.getKeywordName());
                 } else {
-                    keywordNames.add(card.getKeywordName());
+                    duplicated = !keywords.add(card.getKeyword());
+                }
+                if (duplicated && card.getKeyword().isUniqueHeaderKeyword()) {
+                    problems.add("Keyword " + card.getKeywordName() + " is header unique keyword, but there are more keywords in the header.");
                 }
                 if (card.getKeyword() == FitsKeyword.BLANK && bitpixPositive != Boolean.TRUE) {
                     problems.add("Keyword " + card.getKeywordName() + " can be used only if keyword " + FitsKeyword.BITPIX.toString() + " has positive value.");
@@ -160,8 +533,16 @@ public class FitsHeader {
                     }
                 }
             }
-            problems.addAll(mandatoryKeywordsMissing.stream().map(keyword -> "Keyword " + keyword.toString() + " is mandatory and it is not in header.").collect(Collectors.toList()));
-            problems.addAll(mandatoryNKeywordsMissing.stream().map(keyword -> "Keywords " + keyword.toString() + " are mandatory and they are not in header.").collect(Collectors.toList()));
+            if (!keywords.containsAll(FitsKeyword.getImageTypeMandatorySet(imageType))) {
+                Set<FitsKeyword> mandatoryKeywordsMissing = EnumSet.copyOf(FitsKeyword.getImageTypeMandatorySet(imageType));
+                mandatoryKeywordsMissing.removeAll(keywords);
+                problems.addAll(mandatoryKeywordsMissing.stream().map(keyword -> "Keyword " + keyword.toString() + " is mandatory and it is not in header.").collect(Collectors.toList()));
+            }
+            if (!keywords.containsAll(FitsKeyword.getImageTypeNMandatorySet(imageType))) {
+                Set<FitsKeyword> mandatoryNKeywordsMissing = EnumSet.copyOf(FitsKeyword.getImageTypeNMandatorySet(imageType));
+                mandatoryNKeywordsMissing.removeAll(keywords);
+                problems.addAll(mandatoryNKeywordsMissing.stream().map(keyword -> "Keywords " + keyword.toString() + " are mandatory and they are not in header.").collect(Collectors.toList()));
+            }
         }
         return problems;
     }
@@ -172,7 +553,7 @@ public class FitsHeader {
      * @return type of image
      */
     public FitsImageType getFitsImageType() {
-        List<FitsCard> cardsImageType = getCardsWithKeyword("IMAGETYP");
+        List<FitsCard> cardsImageType = getCardsWithKeywordView("IMAGETYP");
         if (cardsImageType.isEmpty()) {
             return FitsImageType.UNKNOWN;
         }
@@ -189,17 +570,10 @@ public class FitsHeader {
      * @return save representation of header
      */
     public byte[] getSaveRepresentation() {
-        if (!checkSaveHeader().isEmpty()) {
+        ByteBuffer buffer = getSaveBuffer();
+        if (buffer == null) {
             return null;
         }
-        StringBuilder stringBuilder = new StringBuilder(cards.size() * FitsFile.CARD_LENGTH);
-        for (FitsCard card : cards) {
-            stringBuilder.append(card.getSaveRepresentation());
-        }
-        int cardsMissing = (FitsFile.CARD_BLOCK_ENTRIES - ((stringBuilder.length() / FitsFile.CARD_LENGTH) % FitsFile.CARD_BLOCK_ENTRIES)) % FitsFile.CARD_BLOCK_ENTRIES;
-        for (int i = 0; i < cardsMissing; i++) {
-            stringBuilder.append(FitsFile.BLANK_CARD_ENTRY);
-        }
-        return stringBuilder.toString().getBytes();
+        return buffer.array().clone();
     }
 }
@@ -1,8 +1,12 @@
 package cz.muni.sci.astro.fits;
 
+import java.io.EOFException;
 import java.io.IOException;
 import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.util.List;
+import java.util.Set;
 
 /**
  * Represents FITS Header Data Unit structure
@@ -11,37 +15,75 @@ import java.util.List;
  */
 public class FitsHeaderDataUnit {
     private final FitsHeader header;
-    private final RandomAccessFile headerFile;
+    private RandomAccessFile headerFile;
     private long headerFileBeginOffset;
     private long headerFileEndOffset;
     private long dataUnitLength;
 
     /**
-     * Creates new HDU from given RandomAccessFile
+     * Creates new HDU from given RandomAccessFile, all cards in header are created right away
      *
      * @param raf RandomAccessFile instance of FITS file with file pointer set to the beginning of HDU
      * @throws FitsFileException if cannot get file header offset
      */
     public FitsHeaderDataUnit(RandomAccessFile raf) throws FitsException {
+        this(raf, false);
+    }
+
+    /**
+     * Creates new HDU from given RandomAccessFile
+     *
+     * @param raf  RandomAccessFile instance of FITS file with file pointer set to the beginning of HDU
+     * @param lazy if true, cards in header are created only when they are read, otherwise all cards are created right away
+     * @throws FitsFileException if cannot get file header offset
+     */
+    public FitsHeaderDataUnit(RandomAccessFile raf, boolean lazy) throws FitsException {
+        this(raf, lazy, null);
+    }
+
+    /**
+     * Creates new HDU from given RandomAccessFile, header contains only cards with given keywords (and structural cards)
+     *
+     * @param raf      RandomAccessFile instance of FITS file with file pointer set to the beginning of HDU
+     * @param lazy     if true, cards in header are created only when they are read, otherwise all cards are created right away
+     * @param keywords names of keywords, which should be kept in header, null if all cards should be kept
+     * @throws FitsFileException if cannot get file header offset
+     */
+    FitsHeaderDataUnit(RandomAccessFile raf, boolean lazy, Set<String> keywords) throws FitsException {
         headerFile = raf;
         try {
             headerFileBeginOffset = raf.getFilePointer();
-            header = new FitsHeader(raf);
+            header = new FitsHeader(raf, lazy, keywords);
             headerFileEndOffset = raf.getFilePointer();
-            int bitpix = Math.abs((int) header.getCardsWithKeyword("BITPIX").get(0).getRValue()) / 8;
-            int countNaxis = (int) header.getCardsWithKeyword("NAXIS").get(0).getRValue();
-            dataUnitLength = 1;
-            for (int i = 1; i <= countNaxis; i++) {
-                dataUnitLength *= (int) header.getCardsWithKeyword("NAXIS" + i).get(0).getRValue();
+            long bitpix = header.getCardsWithKeywordView("BITPIX").get(0).getLong();
+            long[] axes = new long[(int) Math.max(header.getCardsWithKeywordView("NAXIS").get(0).getLong(), 0)];
+            for (int i = 1; i <= axes.length; i++) {
+                axes[i - 1] = header.getCardsWithKeywordView("NAXIS" + i).get(0).getLong();
             }
-            dataUnitLength *= bitpix;
-            dataUnitLength += ((FitsFile.BLOCK_LENGTH - (dataUnitLength % FitsFile.BLOCK_LENGTH)) % FitsFile.BLOCK_LENGTH);
+            dataUnitLength = getDataUnitLength(bitpix, axes);
             raf.seek(headerFileEndOffset + dataUnitLength);
         } catch (IOException exc) {
             throw new FitsFileException("Cannot get file header offset", exc);
         }
     }
 
+    /**
+     * Returns length of data unit (including padding to whole blocks) with given BITPIX and lengths of axes
+     *
+     * @param bitpix value of keyword BITPIX
+     * @param axes   values of keywords NAXISn
+     * @return length of data unit in bytes
+     */
+    static long getDataUnitLength(long bitpix, long[] axes) {
+        long dataUnitLength = 1;
+        for (long axis : axes) {
+            dataUnitLength *= axis;
+        }
+        dataUnitLength *= Math.abs(bitpix) / 8;
+        dataUnitLength += ((FitsFile.BLOCK_LENGTH - (dataUnitLength % FitsFile.BLOCK_LENGTH)) % FitsFile.BLOCK_LENGTH);
+        return dataUnitLength;
+    }
+
     /**
      * Returns header from this HDU
      *
@@ -57,7 +99,7 @@ public class FitsHeaderDataUnit {
      * @return type of image in this HDU
      */
     public FitsImageType getFitsImageType() {
-        List<FitsCard> cardsImageType = header.getCardsWithKeyword("IMAGETYP");
+        List<FitsCard> cardsImageType = header.getCardsWithKeywordView("IMAGETYP");
         if (cardsImageType.isEmpty()) {
             return FitsImageType.UNKNOWN;
         }
@@ -68,6 +110,15 @@ public class FitsHeaderDataUnit {
         }
     }
 
+    /**
+     * Returns position in FitsFile, where HDU begins
+     *
+     * @return position in FitsFile, where HDU begins
+     */
+    public long getHDUBeginPosition() {
+        return headerFileBeginOffset;
+    }
+
     /**
      * Returns position in FitsFile, where HDU ends (possible next HDU starts this + 1)
      *
@@ -78,39 +129,174 @@ public class FitsHeaderDataUnit {
     }
 
     /**
-     * Tries to save HDU
+     * Returns count of reserved cards, which should be added to changed header, so it fits its blocks in file (see FitsHeader.countReservedCards)
      *
-     * @param copy                  copy of FITS file
-     * @param beginHDUPosition      new begin hdu position
-     * @param changedEndHDUPosition if end HDU position was changed
-     * @return true if saving was successful, false if saving failed
+     * @param reservedCards count of reserved cards added, when header does not fit its blocks (0 means no reservation)
+     * @return count of reserved cards, which should be added (negative count should be removed)
      */
-    public boolean saveHDU(RandomAccessFile copy, long beginHDUPosition, boolean changedEndHDUPosition) {
-        byte[] headerText = header.getSaveRepresentation();
-        byte[] copyBytes = new byte[FitsFile.BLOCK_LENGTH];
-        if (changedEndHDUPosition) {
-            headerFileEndOffset += (beginHDUPosition - headerFileBeginOffset);
+    int countReservedCards(int reservedCards) {
+        int countRecords = header.getCountSaveRecords();
+        if (!header.isChanged() || countRecords == -1) {
+            return 0;
         }
-        if (headerText != null) {
-            try {
-                headerFile.seek(beginHDUPosition);
-                headerFile.write(headerText);
-                long endHDUPosition = headerFile.getFilePointer();
-                if (headerFileEndOffset != endHDUPosition) {
-                    copy.seek(headerFileEndOffset);
-                    while (copy.getFilePointer() + FitsFile.BLOCK_LENGTH <= copy.length()) {
-                        copy.readFully(copyBytes);
-                        headerFile.write(copyBytes);
-                    }
-                    headerFile.setLength(headerFile.getFilePointer());
+        return header.countReservedCards(countRecords, (int) ((headerFileEndOffset - headerFileBeginOffset) / FitsFile.CARD_LENGTH), reservedCards);
+    }
+
+    /**
+     * Checks if given serialized header can be rewritten in place - it has same length as header in file, so data unit does not move
+     *
+     * @param headerBuffer serialized header (see FitsHeader.getSaveBuffer)
+     * @return true if header can be rewritten in place, otherwise false
+     */
+    boolean canSaveHeaderInPlace(ByteBuffer headerBuffer) {
+        return headerBuffer.remaining() == headerFileEndOffset - headerFileBeginOffset;
+    }
+
+    /**
+     * Tries to rewrite header in place with given serialized header, only blocks of header are written (nothing is written, if file already contains same bytes)
+     *
+     * @param headerBuffer serialized header (see FitsHeader.getSaveBuffer)
+     * @return true if saving was successful, false if saving failed or header does not fit in its blocks
+     */
+    boolean saveHeaderInPlace(ByteBuffer headerBuffer) {
+        if (!canSaveHeaderInPlace(headerBuffer)) {
+            return false;
+        }
+        if (header.isSavedAs(headerBuffer)) {
+            return true;
+        }
+        ByteBuffer savedHeader = headerBuffer.duplicate();
+        try {
+            long position = headerFileBeginOffset;
+            while (headerBuffer.hasRemaining()) {
+                position += headerFile.getChannel().write(headerBuffer, position);
+            }
+        } catch (IOException exc) {
+            return false;
+        }
+        header.setRawBlocks(savedHeader);
+        return true;
+    }
+
+    /**
+     * Returns position in FitsFile, where data unit begins (header ends)
+     *
+     * @return position in FitsFile, where data unit begins
+     */
+    long getDataUnitPosition() {
+        return headerFileEndOffset;
+    }
+
+    /**
+     * Reads header blocks of this HDU from file
+     *
+     * @return header blocks of this HDU in file
+     * @throws IOException if cannot read file
+     */
+    byte[] readHeaderBlocks() throws IOException {
+        byte[] headerBlocks = new byte[(int) (headerFileEndOffset - headerFileBeginOffset)];
+        if (FitsHeader.readFully(headerFile.getChannel(), headerBlocks, 0, headerBlocks.length, headerFileBeginOffset) != headerBlocks.length) {
+            throw new EOFException("Unexpected end of file while reading header");
+        }
+        return headerBlocks;
+    }
+
+    /**
+     * Moves data unit with given count of bytes to given position in file, only bytes which are in file are moved
+     * Overlapping regions are handled in place - when moving towards the end of file, bytes are copied from the end
+     *
+     * @param position new position of data unit
+     * @param length   count of bytes to move (data unit and following bytes, which should move with it)
+     * @param buffer   buffer used for copying
+     * @throws IOException if cannot read or write file
+     */
+    void moveDataUnit(long position, long length, ByteBuffer buffer) throws IOException {
+        FileChannel channel = headerFile.getChannel();
+        long source = headerFileEndOffset;
+        long count = Math.max(Math.min(length, channel.size() - source), 0);
+        long shift = position - source;
+        long moved = 0;
+        while (moved < count && shift != 0) {
+            int chunk = (int) Math.min(buffer.capacity(), count - moved);
+            long offset = shift > 0 ? count - moved - chunk : moved; // copy from the end if data unit moves towards the end of file
+            buffer.clear();
+            buffer.limit(chunk);
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer, source + offset + buffer.position()) == -1) {
+                    throw new EOFException("Unexpected end of file while moving data unit");
                 }
-                headerFileBeginOffset = beginHDUPosition;
-                headerFileEndOffset = endHDUPosition;
-            } catch (IOException exc) {
-                return false;
             }
-            return true;
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer, position + offset + buffer.position());
+            }
+            moved += chunk;
+        }
+        headerFileEndOffset = position;
+    }
+
+    /**
+     * Writes given serialized header to given position in file, header has to end where data unit begins (see moveDataUnit)
+     *
+     * @param headerBuffer serialized header
+     * @param position     position, where header should be written
+     * @throws IOException if cannot write file
+     */
+    void writeHeader(ByteBuffer headerBuffer, long position) throws IOException {
+        ByteBuffer savedHeader = headerBuffer.duplicate();
+        FileChannel channel = headerFile.getChannel();
+        long headerPosition = position;
+        while (headerBuffer.hasRemaining()) {
+            headerPosition += channel.write(headerBuffer, headerPosition);
         }
-        return false;
+        headerFileBeginOffset = position;
+        headerFileEndOffset = headerPosition;
+        header.setRawBlocks(savedHeader);
+    }
+
+    /**
+     * Copies data unit with given count of bytes to given position in target channel, only bytes which are in file are copied
+     *
+     * @param target   channel, where data unit should be copied
+     * @param position position in target channel, where data unit should be copied
+     * @param length   count of bytes to copy (data unit and following bytes, which should be copied with it)
+     * @throws IOException if cannot read file or write target channel
+     */
+    void copyDataUnit(FileChannel target, long position, long length) throws IOException {
+        FileChannel channel = headerFile.getChannel();
+        long count = Math.max(Math.min(length, channel.size() - headerFileEndOffset), 0);
+        long copied = 0;
+        target.position(position);
+        while (copied < count) {
+            long transferred = channel.transferTo(headerFileEndOffset + copied, count - copied, target);
+            if (transferred <= 0) {
+                throw new EOFException("Unexpected end of file while copying data unit");
+            }
+            copied += transferred;
+        }
+    }
+
+    /**
+     * Sets file, where HDU is stored, and its new positions in it (used when file was replaced by its saved copy)
+     *
+     * @param raf              RandomAccessFile instance of FITS file
+     * @param beginPosition    position, where HDU begins
+     * @param dataUnitPosition position, where data unit begins (header ends)
+     * @param headerBuffer     serialized header saved in file
+     */
+    void setFile(RandomAccessFile raf, long beginPosition, long dataUnitPosition, ByteBuffer headerBuffer) {
+        headerFile = raf;
+        headerFileBeginOffset = beginPosition;
+        headerFileEndOffset = dataUnitPosition;
+        header.setRawBlocks(headerBuffer);
+    }
+
+    /**
+     * Sets file, where HDU is stored, positions are kept (used when file was reopened)
+     *
+     * @param raf RandomAccessFile instance of FITS file
+     */
+    void setFile(RandomAccessFile raf) {
+        headerFile = raf;
     }
 }
@@ -0,0 +1,219 @@
+package cz.muni.sci.astro.fits;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.List;
+
+/**
+ * Represents sidecar journal of FITS file, it contains original header blocks, expected header blocks after saving and positions of HDUs
+ * Journal is written and forced to disk before headers are rewritten in place, so file can be restored, if rewriting fails
+ * Journal format: magic, length of file, count of HDUs, for each HDU its begin position, length of header, original and expected header blocks, magic again (journal is complete)
+ *
+ * @author Jan Hlava, 395986
+ */
+final class FitsHeaderJournal {
+    static final String JOURNAL_FILE_SUFFIX = ".journal";
+    private static final int MAGIC = 0x464A524F;
+
+    private final long fileLength;
+    private final long[] positions;
+    private final byte[][] originalHeaders;
+    private final byte[][] expectedHeaders;
+
+    /**
+     * Creates new journal read from journal file
+     *
+     * @param fileLength      length of FITS file, when journal was written
+     * @param positions       begin positions of HDUs
+     * @param originalHeaders original header blocks of HDUs
+     * @param expectedHeaders expected header blocks of HDUs after saving
+     */
+    private FitsHeaderJournal(long fileLength, long[] positions, byte[][] originalHeaders, byte[][] expectedHeaders) {
+        this.fileLength = fileLength;
+        this.positions = positions;
+        this.originalHeaders = originalHeaders;
+        this.expectedHeaders = expectedHeaders;
+    }
+
+    /**
+     * Returns journal file of given FITS file
+     *
+     * @param file FITS file
+     * @return journal file of given FITS file (it does not have to exist)
+     */
+    static File getJournalFile(File file) {
+        return new File(file.getPath() + JOURNAL_FILE_SUFFIX);
+    }
+
+    /**
+     * Writes journal with current header blocks of given HDUs and their expected header blocks after saving and forces it to disk
+     *
+     * @param journal       journal file
+     * @param HDUs          HDUs of FITS file, which headers should be stored
+     * @param headerBuffers serialized headers of HDUs, which will be written (they have same length as headers in file, positions are not changed)
+     * @param fileLength    current length of FITS file
+     * @throws IOException if cannot read header blocks or write journal
+     */
+    static void write(File journal, List<FitsHeaderDataUnit> HDUs, ByteBuffer[] headerBuffers, long fileLength) throws IOException {
+        try (FileOutputStream fileOutput = new FileOutputStream(journal);
+             DataOutputStream output = new DataOutputStream(new BufferedOutputStream(fileOutput))) {
+            output.writeInt(MAGIC);
+            output.writeLong(fileLength);
+            output.writeInt(HDUs.size());
+            for (int i = 0; i < HDUs.size(); i++) {
+                byte[] headerBlocks = HDUs.get(i).readHeaderBlocks();
+                byte[] expectedBlocks = new byte[headerBuffers[i].remaining()];
+                headerBuffers[i].duplicate().get(expectedBlocks);
+                if (expectedBlocks.length != headerBlocks.length) {
+                    throw new IOException("Header does not fit its blocks, so it cannot be journaled");
+                }
+                output.writeLong(HDUs.get(i).getHDUBeginPosition());
+                output.writeInt(headerBlocks.length);
+                output.write(headerBlocks);
+                output.write(expectedBlocks);
+            }
+            output.writeInt(MAGIC);
+            output.flush();
+            fileOutput.getFD().sync();
+        }
+    }
+
+    /**
+     * Checks if given journal exists and it is complete, so file could be changed by failed saving
+     *
+     * @param journal journal file
+     * @return true if journal is complete, false if it does not exist or it is incomplete (file was not changed)
+     * @throws IOException if cannot read journal or it is not journal of FITS file
+     */
+    static boolean isPending(File journal) throws IOException {
+        return journal.exists() && read(journal) != null;
+    }
+
+    /**
+     * Restores header blocks stored in given journal to given file, journal is deleted after restoring
+     * Journal is replayed only if file has same length as when journal was written and every byte of every header is either original or expected one (saving was interrupted)
+     * Incomplete journal (writing of journal failed, so file was not changed) and journal of finished saving (file contains all expected headers) are only deleted
+     *
+     * @param journal journal file
+     * @param raf     RandomAccessFile instance of FITS file opened for writing
+     * @return true if header blocks were restored, false if journal does not exist, it is incomplete or saving was finished
+     * @throws IOException if cannot read journal or write file or file does not match journal (journal is then kept)
+     */
+    static boolean restore(File journal, RandomAccessFile raf) throws IOException {
+        if (!journal.exists()) {
+            return false;
+        }
+        FitsHeaderJournal entry = read(journal);
+        if (entry == null) {
+            delete(journal);
+            return false;
+        }
+        if (entry.verify(raf, journal)) {
+            delete(journal);
+            return false;
+        }
+        FileChannel channel = raf.getChannel();
+        for (int i = 0; i < entry.positions.length; i++) {
+            ByteBuffer buffer = ByteBuffer.wrap(entry.originalHeaders[i]);
+            while (buffer.hasRemaining()) {
+                channel.write(buffer, entry.positions[i] + buffer.position());
+            }
+        }
+        channel.force(false);
+        delete(journal);
+        return true;
+    }
+
+    /**
+     * Reads given journal
+     *
+     * @param journal journal file
+     * @return read journal, null if journal is incomplete
+     * @throws IOException if cannot read journal or it is not journal of FITS file
+     */
+    private static FitsHeaderJournal read(File journal) throws IOException {
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(journal)))) {
+            if (input.readInt() != MAGIC) {
+                throw new IOException("File " + journal.getName() + " is not journal of FITS file");
+            }
+            long fileLength = input.readLong();
+            int countHDUs = input.readInt();
+            if (countHDUs < 0) {
+                throw new IOException("File " + journal.getName() + " is not journal of FITS file");
+            }
+            long[] positions = new long[countHDUs];
+            byte[][] originalHeaders = new byte[countHDUs][];
+            byte[][] expectedHeaders = new byte[countHDUs][];
+            for (int i = 0; i < countHDUs; i++) {
+                positions[i] = input.readLong();
+                int length = input.readInt();
+                if (length < 0 || positions[i] < 0 || positions[i] + length > fileLength) {
+                    throw new IOException("File " + journal.getName() + " is not journal of FITS file");
+                }
+                originalHeaders[i] = new byte[length];
+                input.readFully(originalHeaders[i]);
+                expectedHeaders[i] = new byte[length];
+                input.readFully(expectedHeaders[i]);
+            }
+            if (input.readInt() != MAGIC) {
+                throw new EOFException();
+            }
+            return new FitsHeaderJournal(fileLength, positions, originalHeaders, expectedHeaders);
+        } catch (EOFException exc) {
+            return null;
+        }
+    }
+
+    /**
+     * Verifies that given file was changed only by saving recorded in this journal
+     *
+     * @param raf     RandomAccessFile instance of FITS file
+     * @param journal journal file (used in messages)
+     * @return true if file contains all expected headers (saving was finished), otherwise false
+     * @throws IOException if cannot read file or file does not match journal
+     */
+    private boolean verify(RandomAccessFile raf, File journal) throws IOException {
+        if (raf.length() != fileLength) {
+            throw new IOException("Length of file does not match journal " + journal.getName() + ", file was changed after failed saving");
+        }
+        FileChannel channel = raf.getChannel();
+        boolean saved = true;
+        for (int i = 0; i < positions.length; i++) {
+            byte[] header = new byte[originalHeaders[i].length];
+            if (FitsHeader.readFully(channel, header, 0, header.length, positions[i]) != header.length) {
+                throw new EOFException("Unexpected end of file while verifying journal " + journal.getName());
+            }
+            for (int j = 0; j < header.length; j++) {
+                if (header[j] != expectedHeaders[i][j]) {
+                    if (header[j] != originalHeaders[i][j]) {
+                        throw new IOException("Header at position " + positions[i] + " does not match journal " + journal.getName() + ", file was changed after failed saving");
+                    }
+                    saved = false;
+                }
+            }
+        }
+        return saved;
+    }
+
+    /**
+     * Deletes given journal
+     *
+     * @param journal journal file
+     * @throws IOException if journal cannot be deleted
+     */
+    static void delete(File journal) throws IOException {
+        if (journal.exists() && !journal.delete()) {
+            throw new IOException("Cannot delete journal " + journal.getName());
+        }
+    }
+}
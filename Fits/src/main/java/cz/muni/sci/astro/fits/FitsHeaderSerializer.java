@@ -0,0 +1,154 @@
+package cz.muni.sci.astro.fits;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Represents serializer of FITS headers, cards are written as ASCII bytes directly into reusable buffer aligned to blocks
+ * Serializer can be used for several headers, but returned buffer is valid only until next serialization
+ *
+ * @author Jan Hlava, 395986
+ */
+final class FitsHeaderSerializer {
+    private static final byte BLANK = ' ';
+    private static final long FINGERPRINT_OFFSET = 0xCBF29CE484222325L;
+    private static final long FINGERPRINT_PRIME = 0x100000001B3L;
+
+    private final StringBuilder card;
+    private ByteBuffer buffer;
+    private int countRecords;
+
+    /**
+     * Creates new serializer
+     */
+    FitsHeaderSerializer() {
+        card = new StringBuilder(FitsFile.CARD_LENGTH);
+        buffer = ByteBuffer.allocate(FitsFile.BLOCK_LENGTH);
+    }
+
+    /**
+     * Serializes given header into buffer without checking saving problems of header, header is padded with blank cards to full blocks
+     * Cards, which were not changed, are written from their raw records (even if they are not valid), so result can be compared with raw header in file
+     *
+     * @param header header to serialize
+     * @return buffer ready for reading (position 0, limit at the end of header), null if some changed card is not valid
+     */
+    ByteBuffer serialize(FitsHeader header) {
+        buffer.clear();
+        ensureRemaining(header.getCards().size() * FitsFile.CARD_LENGTH);
+        for (FitsCard fitsCard : header.getCards()) {
+            card.setLength(0);
+            card.append(FitsFile.BLANK_CARD_ENTRY);
+            if (!fitsCard.fillSaveRepresentation(card)) {
+                return null;
+            }
+            ensureRemaining(card.length());
+            for (int i = 0; i < card.length(); i++) {
+                buffer.put((byte) card.charAt(i)); // valid cards contain only ASCII chars, raw records are kept as ISO-8859-1 chars
+            }
+        }
+        countRecords = buffer.position() / FitsFile.CARD_LENGTH;
+        int bytesMissing = (FitsFile.BLOCK_LENGTH - buffer.position() % FitsFile.BLOCK_LENGTH) % FitsFile.BLOCK_LENGTH;
+        for (int i = 0; i < bytesMissing; i++) {
+            buffer.put(BLANK);
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    /**
+     * Returns count of records (cards including cards with keyword CONTINUE) written by last serialization, padding is not counted
+     *
+     * @return count of records written by last serialization
+     */
+    int getCountRecords() {
+        return countRecords;
+    }
+
+    /**
+     * Returns 64-bit fingerprint of bytes between position and limit of given buffer (position is not changed)
+     * Fingerprint is stable - same bytes have always same fingerprint, so serialized header can be compared with raw header read from file
+     *
+     * @param buffer buffer with bytes
+     * @return 64-bit fingerprint of bytes in buffer
+     */
+    static long fingerprint(ByteBuffer buffer) {
+        int index = buffer.position();
+        int limit = buffer.limit();
+        long hash = FINGERPRINT_OFFSET ^ (limit - index);
+        for (; index + Long.BYTES <= limit; index += Long.BYTES) {
+            hash = (hash ^ buffer.getLong(index)) * FINGERPRINT_PRIME;
+            hash ^= hash >>> 29;
+        }
+        for (; index < limit; index++) {
+            hash = (hash ^ buffer.get(index)) * FINGERPRINT_PRIME;
+        }
+        return hash;
+    }
+
+    /**
+     * Returns copy of given serialized header with given count of reserved cards (blank records) added before END, negative count is removed from last run of blank records before END
+     * Blank records correspond to reserved cards of header (see FitsHeader.countReservedCards), records of CONTINUE cards are never blank
+     *
+     * @param headerBuffer serialized header ending with END record (it is not changed)
+     * @param countRecords count of records of serialized header, padding is not counted
+     * @param count        count of blank records to add
+     * @return new buffer ready for reading with serialized header with reserved cards, it is padded with blank cards to full blocks
+     */
+    static ByteBuffer reserveRecords(ByteBuffer headerBuffer, int countRecords, int count) {
+        int endOffset = headerBuffer.position() + (countRecords - 1) * FitsFile.CARD_LENGTH;
+        int runEnd = endOffset;
+        if (count < 0) {
+            while (runEnd > headerBuffer.position() && !isBlankRecord(headerBuffer, runEnd - FitsFile.CARD_LENGTH)) {
+                runEnd -= FitsFile.CARD_LENGTH;
+            }
+        }
+        int countNewRecords = countRecords + count;
+        int length = (countNewRecords + FitsFile.CARD_BLOCK_ENTRIES - 1) / FitsFile.CARD_BLOCK_ENTRIES * FitsFile.BLOCK_LENGTH;
+        ByteBuffer result = ByteBuffer.allocate(length);
+        ByteBuffer source = headerBuffer.duplicate();
+        source.limit(count < 0 ? runEnd + count * FitsFile.CARD_LENGTH : endOffset);
+        result.put(source);
+        for (int i = 0; i < count * FitsFile.CARD_LENGTH; i++) {
+            result.put(BLANK);
+        }
+        source.limit(endOffset + FitsFile.CARD_LENGTH).position(count < 0 ? runEnd : endOffset);
+        result.put(source);
+        while (result.hasRemaining()) {
+            result.put(BLANK);
+        }
+        result.flip();
+        return result;
+    }
+
+    /**
+     * Checks if record on given offset of buffer is blank (it contains only spaces)
+     *
+     * @param buffer buffer with records
+     * @param offset offset of record in buffer
+     * @return true if record is blank, otherwise false
+     */
+    private static boolean isBlankRecord(ByteBuffer buffer, int offset) {
+        for (int i = 0; i < FitsFile.CARD_LENGTH; i++) {
+            if (buffer.get(offset + i) != BLANK) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Ensures that buffer has at least given count of remaining bytes, buffer is enlarged (to full blocks) if needed
+     *
+     * @param count desired count of remaining bytes
+     */
+    private void ensureRemaining(int count) {
+        if (buffer.remaining() < count) {
+            int capacity = Math.max(buffer.position() + count, buffer.capacity() * 2);
+            capacity += (FitsFile.BLOCK_LENGTH - capacity % FitsFile.BLOCK_LENGTH) % FitsFile.BLOCK_LENGTH;
+            ByteBuffer newBuffer = ByteBuffer.allocate(capacity);
+            buffer.flip();
+            newBuffer.put(buffer);
+            buffer = newBuffer;
+        }
+    }
+}
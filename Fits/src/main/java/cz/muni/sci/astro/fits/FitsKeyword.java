@@ -2,7 +2,11 @@ package cz.muni.sci.astro.fits;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.EnumMap;
+import java.util.EnumSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * Enum definitions of known Keywords
@@ -10,98 +14,128 @@ import java.util.List;
  * @author Jan Hlava, 395986
  */
 public enum FitsKeyword {
-    SIMPLE("SIMPLE"),
-    BITPIX("BITPIX"),
-    NAXIS("NAXIS"),
-    NAXISn("NAXISn"),
-    EXTEND("EXTEND"),
-    BSCALE("BSCALE"),
-    BZERO("BZERO"),
-    BUNIT("BUNIT"),
-    PEDESTAL("PEDESTAL"),
-    DATAMIN("DATAMIN"),
-    DATAMAX("DATAMAX"),
-    BLANK("BLANK"),
-    SITENAME("SITENAME"),
-    SITEALT("SITEALT"),
-    SITELAT("SITELAT"),
-    SITELONG("SITELONG"),
-    TIMEZONE("TIMEZONE"),
-    TELESCOP("TELESCOP"),
-    TELFOCUS("TELFOCUS"),
-    TELDIAM("TELDIAM"),
-    TELFRAT("TELFRAT"),
-    INSTRUME("INSTRUME"),
-    CCDABG("CCDABG"),
-    CCDFWC("CCDFWC"),
-    CCDEGAIN("CDDEGAIN"),
-    CCDRNOIS("CCDRNOIS"),
-    CCDRTIME("CCDRTIME"),
-    CCDSIZEn("CCDSIZEn"),
-    PIXSIZEn("PIXSIZEn"),
-    PIXSCALn("PIXSCALn"),
-    BIASSECn("BIASSECn"),
-    PROGRAM("PROGRAM"),
-    ORIGIN("ORIGIN"),
-    OWNER("OWNER"),
-    OBSERVER("OBSERVER"),
-    DATASEC("DATASEC"),
-    BINNINGn("BINNINGn"),
-    TEMP_SET("TEMP-SET"),
-    TEMP_CCD("TEMP-CCD"),
-    TEMP_OUT("TEMP-OUT"),
-    TIMESYS("TIMESYS"),
-    DATE_OBS("DATE-OBS"),
-    IMAGETYP("IMAGETYP"),
-    EXPTIME("EXPTIME"),
-    FILTER("FILTER"),
-    FLIPSTAT("FLIPSTAT"),
-    MOUNTDEC("MOUNTDEC"),
-    MOUNTRA("MOUNTRA"),
-    NOTES("NOTES"),
-    OBJECT("OBJECT"),
-    CATNAME("CATNAME"),
-    WDEC("WDEC"),
-    WRA("WRA"),
-    WEPOCH("WEPOCH"),
-    CRPIXn("CRPIXn"),
-    CRVALn("CRVALn"),
-    DEC("DEC"),
-    RA("RA"),
-    EPOCH("EPOCH"),
-    EQUINOX("EQUINOX"),
-    RADECSYS("RADECSYS"),
-    CTYPEn("CTYPEn"),
-    CDELTn("CDELTn"),
-    CROTAn("CROTAn"),
-    CD1_1("CD1_1"),
-    CD1_2("CD1_2"),
-    CD2_1("CD2_1"),
-    CD2_2("CD2_2"),
-    SECPIX("SECPIX"),
-    WCSSEP("WCSSEP"),
-    WCSRFCAT("WCSRFCAT"),
-    WCSIMCAT("WCSIMCAT"),
-    WCSMATCH("WCSMATCH"),
-    WCSNREF("WCSNREF"),
-    WCSTOL("WCSTOL"),
-    IMWCS("IMWCS"),
-    COMMENT("COMMENT"),
-    HISTORY("HISTORY"),
-    CONTINUE("CONTINUE"),
-    EMPTY(""),
-    END("END"),
-    CUSTOM("CUSTOM");
+    SIMPLE("SIMPLE", FitsKeywordsDataType.LOGICAL),
+    BITPIX("BITPIX", FitsKeywordsDataType.INT),
+    NAXIS("NAXIS", FitsKeywordsDataType.INT),
+    NAXISn("NAXISn", FitsKeywordsDataType.INT, FitsKeyword.N_KEYWORD | FitsKeyword.N_AS_NAXIS),
+    EXTEND("EXTEND", FitsKeywordsDataType.LOGICAL),
+    BSCALE("BSCALE", FitsKeywordsDataType.REAL),
+    BZERO("BZERO", FitsKeywordsDataType.REAL),
+    BUNIT("BUNIT", FitsKeywordsDataType.LITERAL),
+    PEDESTAL("PEDESTAL", FitsKeywordsDataType.INT, FitsKeyword.UNIT),
+    DATAMIN("DATAMIN", FitsKeywordsDataType.REAL, FitsKeyword.UNIT),
+    DATAMAX("DATAMAX", FitsKeywordsDataType.REAL, FitsKeyword.UNIT),
+    BLANK("BLANK", FitsKeywordsDataType.INT),
+    SITENAME("SITENAME", FitsKeywordsDataType.LITERAL),
+    SITEALT("SITEALT", FitsKeywordsDataType.REAL, FitsKeyword.UNIT),
+    SITELAT("SITELAT", FitsKeywordsDataType.REAL, FitsKeyword.UNIT),
+    SITELONG("SITELONG", FitsKeywordsDataType.REAL, FitsKeyword.UNIT),
+    TIMEZONE("TIMEZONE", FitsKeywordsDataType.REAL, FitsKeyword.UNIT),
+    TELESCOP("TELESCOP", FitsKeywordsDataType.LITERAL),
+    TELFOCUS("TELFOCUS", FitsKeywordsDataType.REAL, FitsKeyword.UNIT),
+    TELDIAM("TELDIAM", FitsKeywordsDataType.REAL, FitsKeyword.UNIT),
+    TELFRAT("TELFRAT", FitsKeywordsDataType.LITERAL),
+    INSTRUME("INSTRUME", FitsKeywordsDataType.LITERAL),
+    CCDABG("CCDABG", FitsKeywordsDataType.LOGICAL),
+    CCDFWC("CCDFWC", FitsKeywordsDataType.REAL, FitsKeyword.UNIT),
+    CCDEGAIN("CDDEGAIN", FitsKeywordsDataType.REAL, FitsKeyword.UNIT),
+    CCDRNOIS("CCDRNOIS", FitsKeywordsDataType.REAL, FitsKeyword.UNIT),
+    CCDRTIME("CCDRTIME", FitsKeywordsDataType.REAL, FitsKeyword.UNIT),
+    CCDSIZEn("CCDSIZEn", FitsKeywordsDataType.REAL, FitsKeyword.N_KEYWORD | FitsKeyword.N_AS_NAXIS),
+    PIXSIZEn("PIXSIZEn", FitsKeywordsDataType.REAL, FitsKeyword.N_KEYWORD | FitsKeyword.N_AS_NAXIS | FitsKeyword.UNIT),
+    PIXSCALn("PIXSCALn", FitsKeywordsDataType.REAL, FitsKeyword.N_KEYWORD | FitsKeyword.N_AS_NAXIS | FitsKeyword.UNIT),
+    BIASSECn("BIASSECn", FitsKeywordsDataType.LITERAL, FitsKeyword.N_KEYWORD),
+    PROGRAM("PROGRAM", FitsKeywordsDataType.LITERAL),
+    ORIGIN("ORIGIN", FitsKeywordsDataType.LITERAL),
+    OWNER("OWNER", FitsKeywordsDataType.LITERAL),
+    OBSERVER("OBSERVER", FitsKeywordsDataType.LITERAL),
+    DATASEC("DATASEC", FitsKeywordsDataType.LITERAL),
+    BINNINGn("BINNINGn", FitsKeywordsDataType.REAL, FitsKeyword.N_KEYWORD | FitsKeyword.N_AS_NAXIS),
+    TEMP_SET("TEMP-SET", FitsKeywordsDataType.REAL, FitsKeyword.UNIT),
+    TEMP_CCD("TEMP-CCD", FitsKeywordsDataType.REAL, FitsKeyword.UNIT),
+    TEMP_OUT("TEMP-OUT", FitsKeywordsDataType.REAL, FitsKeyword.UNIT),
+    TIMESYS("TIMESYS", FitsKeywordsDataType.LITERAL),
+    DATE_OBS("DATE-OBS", FitsKeywordsDataType.LITERAL),
+    IMAGETYP("IMAGETYP", FitsKeywordsDataType.LITERAL),
+    EXPTIME("EXPTIME", FitsKeywordsDataType.REAL, FitsKeyword.UNIT),
+    FILTER("FILTER", FitsKeywordsDataType.LITERAL),
+    FLIPSTAT("FLIPSTAT", FitsKeywordsDataType.LITERAL),
+    MOUNTDEC("MOUNTDEC", FitsKeywordsDataType.REAL, FitsKeyword.UNIT),
+    MOUNTRA("MOUNTRA", FitsKeywordsDataType.REAL, FitsKeyword.UNIT),
+    NOTES("NOTES", FitsKeywordsDataType.LITERAL),
+    OBJECT("OBJECT", FitsKeywordsDataType.LITERAL),
+    CATNAME("CATNAME", FitsKeywordsDataType.LITERAL),
+    WDEC("WDEC", FitsKeywordsDataType.LITERAL),
+    WRA("WRA", FitsKeywordsDataType.LITERAL),
+    WEPOCH("WEPOCH", FitsKeywordsDataType.REAL),
+    CRPIXn("CRPIXn", FitsKeywordsDataType.REAL, FitsKeyword.N_KEYWORD | FitsKeyword.N_AS_NAXIS | FitsKeyword.UNIT),
+    CRVALn("CRVALn", FitsKeywordsDataType.REAL, FitsKeyword.N_KEYWORD | FitsKeyword.N_AS_NAXIS | FitsKeyword.UNIT),
+    DEC("DEC", FitsKeywordsDataType.LITERAL),
+    RA("RA", FitsKeywordsDataType.LITERAL),
+    EPOCH("EPOCH", FitsKeywordsDataType.REAL),
+    EQUINOX("EQUINOX", FitsKeywordsDataType.REAL),
+    RADECSYS("RADECSYS", FitsKeywordsDataType.LITERAL),
+    CTYPEn("CTYPEn", FitsKeywordsDataType.LITERAL, FitsKeyword.N_KEYWORD | FitsKeyword.N_AS_NAXIS),
+    CDELTn("CDELTn", FitsKeywordsDataType.REAL, FitsKeyword.N_KEYWORD | FitsKeyword.N_AS_NAXIS | FitsKeyword.UNIT),
+    CROTAn("CROTAn", FitsKeywordsDataType.REAL, FitsKeyword.N_KEYWORD | FitsKeyword.N_AS_NAXIS | FitsKeyword.UNIT),
+    CD1_1("CD1_1", FitsKeywordsDataType.REAL),
+    CD1_2("CD1_2", FitsKeywordsDataType.REAL),
+    CD2_1("CD2_1", FitsKeywordsDataType.REAL),
+    CD2_2("CD2_2", FitsKeywordsDataType.REAL),
+    SECPIX("SECPIX", FitsKeywordsDataType.REAL, FitsKeyword.UNIT),
+    WCSSEP("WCSSEP", FitsKeywordsDataType.REAL, FitsKeyword.UNIT),
+    WCSRFCAT("WCSRFCAT", FitsKeywordsDataType.LITERAL),
+    WCSIMCAT("WCSIMCAT", FitsKeywordsDataType.LITERAL),
+    WCSMATCH("WCSMATCH", FitsKeywordsDataType.REAL),
+    WCSNREF("WCSNREF", FitsKeywordsDataType.REAL),
+    WCSTOL("WCSTOL", FitsKeywordsDataType.REAL, FitsKeyword.UNIT),
+    IMWCS("IMWCS", FitsKeywordsDataType.LITERAL),
+    COMMENT("COMMENT", FitsKeywordsDataType.NONE, FitsKeyword.REPEATABLE),
+    HISTORY("HISTORY", FitsKeywordsDataType.NONE, FitsKeyword.REPEATABLE),
+    CONTINUE("CONTINUE", FitsKeywordsDataType.NONE, FitsKeyword.REPEATABLE),
+    EMPTY("", FitsKeywordsDataType.NONE, FitsKeyword.REPEATABLE),
+    END("END", FitsKeywordsDataType.NONE),
+    CUSTOM("CUSTOM", FitsKeywordsDataType.CUSTOM);
+
+    private static final int N_KEYWORD = 1;
+    private static final int N_AS_NAXIS = 1 << 1;
+    private static final int REPEATABLE = 1 << 2;
+    private static final int UNIT = 1 << 3;
+    private static final Map<FitsImageType, Set<FitsKeyword>> IMAGE_TYPE_MANDATORY = new EnumMap<>(FitsImageType.class);
+    private static final Map<FitsImageType, Set<FitsKeyword>> IMAGE_TYPE_N_MANDATORY = new EnumMap<>(FitsImageType.class);
+
+    static {
+        for (FitsImageType imageType : FitsImageType.values()) {
+            IMAGE_TYPE_MANDATORY.put(imageType, createImageTypeMandatory(imageType));
+            IMAGE_TYPE_N_MANDATORY.put(imageType, createImageTypeNMandatory(imageType));
+        }
+    }
 
     private final String name;
+    private final FitsKeywordsDataType type;
+    private final int properties;
 
     /**
-     * Creates new instance of this enum with given name
+     * Creates new instance of this enum with given name and data type
      *
      * @param name name of keyword
+     * @param type data type of keyword
+     */
+    FitsKeyword(String name, FitsKeywordsDataType type) {
+        this(name, type, 0);
+    }
+
+    /**
+     * Creates new instance of this enum with given name, data type and properties
+     *
+     * @param name       name of keyword
+     * @param type       data type of keyword
+     * @param properties bitmask of properties of keyword (N_KEYWORD, N_AS_NAXIS, REPEATABLE, UNIT)
      */
-    FitsKeyword(String name) {
+    FitsKeyword(String name, FitsKeywordsDataType type, int properties) {
         this.name = name;
+        this.type = type;
+        this.properties = properties;
     }
 
     /**
@@ -111,7 +145,27 @@ public enum FitsKeyword {
      * @return collection of mandatory keywords for given image type
      */
     public static List<FitsKeyword> getImageTypeMandatory(FitsImageType imageType) {
-        List<FitsKeyword> keywords = new ArrayList<>();
+        return new ArrayList<>(IMAGE_TYPE_MANDATORY.get(imageType));
+    }
+
+    /**
+     * Returns set of mandatory keywords for given image type (set is precomputed and cannot be modified)
+     *
+     * @param imageType image type for which we need set of mandatory keywords
+     * @return set of mandatory keywords for given image type
+     */
+    static Set<FitsKeyword> getImageTypeMandatorySet(FitsImageType imageType) {
+        return IMAGE_TYPE_MANDATORY.get(imageType);
+    }
+
+    /**
+     * Creates set of mandatory keywords for given image type
+     *
+     * @param imageType image type for which we need set of mandatory keywords
+     * @return set of mandatory keywords for given image type
+     */
+    private static Set<FitsKeyword> createImageTypeMandatory(FitsImageType imageType) {
+        Set<FitsKeyword> keywords = EnumSet.noneOf(FitsKeyword.class);
         switch (imageType) {
             case UNKNOWN:
                 Collections.addAll(keywords, SIMPLE, BITPIX, NAXIS, END); // IMAGETYP was removed because it can prevent from saving file where imagetyp is missing and no change with this keyword was made, it can be little confusing
@@ -132,7 +186,7 @@ public enum FitsKeyword {
                 Collections.addAll(keywords, SIMPLE, BITPIX, NAXIS, END);
                 break;
         }
-        return keywords;
+        return Collections.unmodifiableSet(keywords);
     }
 
     /**
@@ -142,7 +196,27 @@ public enum FitsKeyword {
      * @return collection of mandatory n type keywords for given image type
      */
     public static List<FitsKeyword> getImageTypeNMandatory(FitsImageType imageType) {
-        List<FitsKeyword> keywords = new ArrayList<>();
+        return new ArrayList<>(IMAGE_TYPE_N_MANDATORY.get(imageType));
+    }
+
+    /**
+     * Returns set of mandatory n type keywords for given image type (set is precomputed and cannot be modified)
+     *
+     * @param imageType image type for which we need set of mandatory n type keywords
+     * @return set of mandatory n type keywords for given image type
+     */
+    static Set<FitsKeyword> getImageTypeNMandatorySet(FitsImageType imageType) {
+        return IMAGE_TYPE_N_MANDATORY.get(imageType);
+    }
+
+    /**
+     * Creates set of mandatory n type keywords for given image type
+     *
+     * @param imageType image type for which we need set of mandatory n type keywords
+     * @return set of mandatory n type keywords for given image type
+     */
+    private static Set<FitsKeyword> createImageTypeNMandatory(FitsImageType imageType) {
+        Set<FitsKeyword> keywords = EnumSet.noneOf(FitsKeyword.class);
         switch (imageType) {
             case UNKNOWN:
                 keywords.add(NAXISn);
@@ -163,7 +237,7 @@ public enum FitsKeyword {
                 Collections.addAll(keywords, NAXISn, CCDSIZEn, PIXSIZEn, BINNINGn);
                 break;
         }
-        return keywords;
+        return Collections.unmodifiableSet(keywords);
     }
 
     /**
@@ -182,97 +256,7 @@ public enum FitsKeyword {
      * @return data type of this keyword
      */
     public FitsKeywordsDataType getType() {
-        switch (this) {
-            case SIMPLE:
-            case EXTEND:
-            case CCDABG:
-                return FitsKeywordsDataType.LOGICAL;
-            case BITPIX:
-            case NAXIS:
-            case NAXISn:
-            case PEDESTAL:
-            case BLANK:
-                return FitsKeywordsDataType.INT;
-            case BSCALE:
-            case BZERO:
-            case DATAMIN:
-            case DATAMAX:
-            case SITEALT:
-            case SITELAT:
-            case SITELONG:
-            case TIMEZONE:
-            case TELFOCUS:
-            case TELDIAM:
-            case CCDFWC:
-            case CCDEGAIN:
-            case CCDRNOIS:
-            case CCDRTIME:
-            case CCDSIZEn:
-            case PIXSIZEn:
-            case PIXSCALn:
-            case BINNINGn:
-            case TEMP_SET:
-            case TEMP_CCD:
-            case TEMP_OUT:
-            case EXPTIME:
-            case MOUNTDEC:
-            case MOUNTRA:
-            case WEPOCH:
-            case CRPIXn:
-            case CRVALn:
-            case EPOCH:
-            case EQUINOX:
-            case CDELTn:
-            case CROTAn:
-            case CD1_1:
-            case CD1_2:
-            case CD2_1:
-            case CD2_2:
-            case SECPIX:
-            case WCSSEP:
-            case WCSMATCH:
-            case WCSNREF:
-            case WCSTOL:
-                return FitsKeywordsDataType.REAL;
-            case BUNIT:
-            case SITENAME:
-            case TELESCOP:
-            case TELFRAT:
-            case INSTRUME:
-            case BIASSECn:
-            case PROGRAM:
-            case ORIGIN:
-            case OWNER:
-            case OBSERVER:
-            case DATASEC:
-            case TIMESYS:
-            case DATE_OBS:
-            case IMAGETYP:
-            case FILTER:
-            case FLIPSTAT:
-            case NOTES:
-            case OBJECT:
-            case CATNAME:
-            case WDEC:
-            case WRA:
-            case DEC:
-            case RA:
-            case RADECSYS:
-            case CTYPEn:
-            case WCSRFCAT:
-            case WCSIMCAT:
-            case IMWCS:
-                return FitsKeywordsDataType.LITERAL;
-            case CUSTOM:
-                return FitsKeywordsDataType.CUSTOM;
-            case COMMENT:
-            case HISTORY:
-            case CONTINUE:
-            case EMPTY:
-            case END:
-            default:
-                return FitsKeywordsDataType.NONE;
-        }
+        return type;
     }
 
     /**
@@ -281,22 +265,7 @@ public enum FitsKeyword {
      * @return true if keyword is n type, otherwise false
      */
     public boolean isNKeyword() {
-        switch (this) {
-            case NAXISn:
-            case CCDSIZEn:
-            case PIXSIZEn:
-            case PIXSCALn:
-            case BIASSECn:
-            case BINNINGn:
-            case CRPIXn:
-            case CRVALn:
-            case CTYPEn:
-            case CDELTn:
-            case CROTAn:
-                return true;
-            default:
-                return false;
-        }
+        return (properties & N_KEYWORD) != 0;
     }
 
     /**
@@ -305,21 +274,7 @@ public enum FitsKeyword {
      * @return true if must have n param as keyword NAXIS, otherwise false
      */
     public boolean isNAsNAXIS() {
-        switch (this) {
-            case NAXISn:
-            case CCDSIZEn:
-            case PIXSIZEn:
-            case PIXSCALn:
-            case BINNINGn:
-            case CRPIXn:
-            case CRVALn:
-            case CTYPEn:
-            case CDELTn:
-            case CROTAn:
-                return true;
-            default:
-                return false;
-        }
+        return (properties & N_AS_NAXIS) != 0;
     }
 
     /**
@@ -328,15 +283,7 @@ public enum FitsKeyword {
      * @return true if this keyword should be unique in header, otherwise no
      */
     public boolean isUniqueHeaderKeyword() {
-        switch (this) {
-            case EMPTY:
-            case COMMENT:
-            case HISTORY:
-            case CONTINUE:
-                return false;
-            default:
-                return true;
-        }
+        return (properties & REPEATABLE) == 0;
     }
 
     /**
@@ -345,38 +292,6 @@ public enum FitsKeyword {
      * @return true if this keyword has physical unit, otherwise false
      */
     public boolean isUnitKeyword() {
-        switch (this) {
-            case PEDESTAL:
-            case DATAMIN:
-            case DATAMAX:
-            case SITEALT:
-            case SITELAT:
-            case SITELONG:
-            case TIMEZONE:
-            case TELDIAM:
-            case TELFOCUS:
-            case CCDFWC:
-            case CCDEGAIN:
-            case CCDRNOIS:
-            case CCDRTIME:
-            case PIXSIZEn:
-            case PIXSCALn:
-            case TEMP_SET:
-            case TEMP_CCD:
-            case TEMP_OUT:
-            case EXPTIME:
-            case MOUNTDEC:
-            case MOUNTRA:
-            case CRPIXn:
-            case CRVALn:
-            case CDELTn:
-            case CROTAn:
-            case SECPIX:
-            case WCSSEP:
-            case WCSTOL:
-                return true;
-            default:
-                return false;
-        }
+        return (properties & UNIT) != 0;
     }
 }
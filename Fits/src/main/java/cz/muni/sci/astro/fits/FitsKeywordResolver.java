@@ -0,0 +1,208 @@
+package cz.muni.sci.astro.fits;
+
+/**
+ * Resolves keywords of cards from keyword section of record (first 8 bytes) without exceptions and regular expressions
+ * Known keywords are kept in precomputed hash table, where 8 bytes of keyword name are packed into one long
+ *
+ * @author Jan Hlava, 395986
+ */
+final class FitsKeywordResolver {
+    private static final int TABLE_BITS = 8;
+    private static final int TABLE_MASK = (1 << TABLE_BITS) - 1;
+    private static final long HASH_MULTIPLIER = 0x9E3779B97F4A7C15L;
+    private static final long[] KEYS = new long[1 << TABLE_BITS];
+    private static final FitsKeyword[] KEYWORDS = new FitsKeyword[1 << TABLE_BITS];
+    private static final FitsKeyword[] N_KEYWORDS;
+    private static final String[] N_PREFIXES;
+
+    static {
+        int countNKeywords = 0;
+        for (FitsKeyword keyword : FitsKeyword.values()) {
+            if (keyword.name().length() <= FitsFile.KEYWORD_LENGTH) {
+                put(pack(keyword.name()), keyword);
+            }
+            if (keyword.isNKeyword()) {
+                countNKeywords++;
+            }
+        }
+        N_KEYWORDS = new FitsKeyword[countNKeywords];
+        N_PREFIXES = new String[countNKeywords];
+        countNKeywords = 0;
+        for (FitsKeyword keyword : FitsKeyword.values()) {
+            if (keyword.isNKeyword()) {
+                N_KEYWORDS[countNKeywords] = keyword;
+                N_PREFIXES[countNKeywords] = keyword.name().substring(0, keyword.name().length() - 1);
+                countNKeywords++;
+            }
+        }
+    }
+
+    /**
+     * Creates new instance (it is not possible to create instances of this class)
+     */
+    private FitsKeywordResolver() {
+    }
+
+    /**
+     * Returns keyword of given entry
+     * Keyword is found by its name (trailing whitespaces are ignored and hyphens are same as underscores), then n keywords are tried
+     * (prefix followed by digits, optionally by spaces and by '=' on position 8), blank names are EMPTY and rest is CUSTOM
+     *
+     * @param entry tokenizer set to the beginning of entry (at least 9 characters long)
+     * @return keyword of given entry
+     */
+    static FitsKeyword resolve(FitsCardTokenizer entry) {
+        FitsKeyword keyword = get(pack(entry));
+        if (keyword != null) {
+            return keyword;
+        }
+        if (entry.charAt(FitsFile.KEYWORD_LENGTH) == '=') {
+            for (int i = 0; i < N_KEYWORDS.length; i++) {
+                if (hasPrefix(entry, N_PREFIXES[i]) && getNParam(entry, N_PREFIXES[i].length()) != -1) {
+                    return N_KEYWORDS[i];
+                }
+            }
+        }
+        if (entry.isBlank(0, FitsFile.KEYWORD_LENGTH)) {
+            return FitsKeyword.EMPTY;
+        }
+        return FitsKeyword.CUSTOM;
+    }
+
+    /**
+     * Returns n param of given entry with given keyword
+     *
+     * @param entry   tokenizer set to the beginning of entry (at least 9 characters long)
+     * @param keyword keyword of given entry
+     * @return n param of given entry, -1 if keyword is not n type or entry does not contain n param
+     */
+    static int getNParam(FitsCardTokenizer entry, FitsKeyword keyword) {
+        if (!keyword.isNKeyword()) {
+            return -1;
+        }
+        return getNParam(entry, keyword.name().length() - 1);
+    }
+
+    /**
+     * Returns n param starting at given index of keyword section, n param are digits followed only by spaces
+     *
+     * @param entry tokenizer set to the beginning of entry
+     * @param start index, where n param starts
+     * @return n param, -1 if there are not any digits or digits are followed by other characters than spaces
+     */
+    private static int getNParam(FitsCardTokenizer entry, int start) {
+        int nParam = 0;
+        int index = start;
+        while (index < FitsFile.KEYWORD_LENGTH && entry.charAt(index) >= '0' && entry.charAt(index) <= '9') {
+            nParam = nParam * 10 + entry.charAt(index) - '0';
+            index++;
+        }
+        if (index == start) {
+            return -1;
+        }
+        while (index < FitsFile.KEYWORD_LENGTH) {
+            if (entry.charAt(index) != ' ') {
+                return -1;
+            }
+            index++;
+        }
+        return nParam;
+    }
+
+    /**
+     * Checks if entry starts with given prefix
+     *
+     * @param entry  tokenizer set to the beginning of entry
+     * @param prefix prefix to check
+     * @return true if entry starts with given prefix, otherwise false
+     */
+    private static boolean hasPrefix(FitsCardTokenizer entry, String prefix) {
+        for (int i = 0; i < prefix.length(); i++) {
+            if (entry.charAt(i) != prefix.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns keyword section of entry packed into long (trailing whitespaces are replaced by spaces, hyphens by underscores)
+     *
+     * @param entry tokenizer set to the beginning of entry
+     * @return keyword section of entry packed into long
+     */
+    private static long pack(FitsCardTokenizer entry) {
+        int end = entry.stripTrailingWhitespaces(0, FitsFile.KEYWORD_LENGTH);
+        long key = 0;
+        for (int i = 0; i < FitsFile.KEYWORD_LENGTH; i++) {
+            key = (key << 8) | packCharacter(i < end ? entry.charAt(i) : ' ');
+        }
+        return key;
+    }
+
+    /**
+     * Returns keyword name packed into long (name is filled by spaces to 8 characters)
+     *
+     * @param name keyword name
+     * @return keyword name packed into long
+     */
+    private static long pack(String name) {
+        long key = 0;
+        for (int i = 0; i < FitsFile.KEYWORD_LENGTH; i++) {
+            key = (key << 8) | packCharacter(i < name.length() ? name.charAt(i) : ' ');
+        }
+        return key;
+    }
+
+    /**
+     * Returns character as it is stored in packed keyword name
+     *
+     * @param ch character to pack
+     * @return character as it is stored in packed keyword name
+     */
+    private static long packCharacter(char ch) {
+        return ch == '-' ? '_' : ch & 0xFF;
+    }
+
+    /**
+     * Inserts keyword with given packed name into table
+     *
+     * @param key     packed keyword name
+     * @param keyword keyword to insert
+     */
+    private static void put(long key, FitsKeyword keyword) {
+        int index = hash(key);
+        while (KEYWORDS[index] != null) {
+            index = (index + 1) & TABLE_MASK;
+        }
+        KEYS[index] = key;
+        KEYWORDS[index] = keyword;
+    }
+
+    /**
+     * Returns keyword with given packed name
+     *
+     * @param key packed keyword name
+     * @return keyword with given packed name, null if there is not any
+     */
+    private static FitsKeyword get(long key) {
+        int index = hash(key);
+        while (KEYWORDS[index] != null) {
+            if (KEYS[index] == key) {
+                return KEYWORDS[index];
+            }
+            index = (index + 1) & TABLE_MASK;
+        }
+        return null;
+    }
+
+    /**
+     * Returns index in table for given packed name
+     *
+     * @param key packed keyword name
+     * @return index in table for given packed name
+     */
+    private static int hash(long key) {
+        return (int) ((key * HASH_MULTIPLIER) >>> (Long.SIZE - TABLE_BITS));
+    }
+}
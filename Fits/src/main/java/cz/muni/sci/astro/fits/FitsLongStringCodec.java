@@ -0,0 +1,173 @@
+package cz.muni.sci.astro.fits;
+
+import java.util.List;
+
+/**
+ * Represents codec of long strings split to several cards with keyword CONTINUE
+ * Fragments are collected into one builder when reading and chain of cards is written directly into output when saving
+ *
+ * @author Jan Hlava, 395986
+ */
+final class FitsLongStringCodec {
+    static final int VALUE_START_INDEX = 10;
+    private static final int CONTINUE_VALUE_LENGTH = FitsFile.CARD_LENGTH - VALUE_START_INDEX;
+    private static final String COMMENT_SEPARATOR = " / ";
+    private static final char LITERAL_MARK = '\'';
+    private static final char CONTINUED_VALUE_END_MARK = '&';
+    private static final int VALUE_LENGTH_RESERVED = 3;
+
+    /**
+     * Creates new codec, it is not allowed, codec has only static methods
+     */
+    private FitsLongStringCodec() {
+    }
+
+    /**
+     * Joins value and comment of given CONTINUE cards to given card
+     *
+     * @param card          card with literal value ending with &amp;
+     * @param continueCards cards with keyword CONTINUE following given card
+     * @throws FitsCardBadFormatException if given card cannot be continued
+     */
+    static void join(FitsCard card, List<FitsCard> continueCards) throws FitsCardBadFormatException {
+        if (card.getDataType() != FitsKeywordsDataType.LITERAL) {
+            throw new FitsCardBadFormatException("Keyword Continue needs card with literal data type");
+        }
+        StringBuilder rawEntry = card.getRawEntry() == null ? null : new StringBuilder(card.getRawEntry());
+        String firstValue = card.getRValueString();
+        StringBuilder value = new StringBuilder(firstValue.length() + continueCards.size() * CONTINUE_VALUE_LENGTH);
+        StringBuilder comment = new StringBuilder(card.getComment());
+        value.append(firstValue);
+        for (FitsCard continueCard : continueCards) {
+            if (value.length() == 0 || value.charAt(value.length() - 1) != CONTINUED_VALUE_END_MARK) {
+                throw new FitsCardBadFormatException("Keyword Continue needs card which ends with &");
+            }
+            value.setLength(value.length() - 1);
+            value.append(continueCard.getRValueString());
+            comment.append(continueCard.getComment());
+            card.incrementCountContinue();
+            if (rawEntry != null && continueCard.getRawEntry() != null) {
+                rawEntry.append(continueCard.getRawEntry());
+            } else {
+                rawEntry = null;
+            }
+        }
+        card.setRValue(value.toString());
+        card.setComment(comment.toString());
+        card.setRawEntry(rawEntry == null ? null : rawEntry.toString()); // joined card is written back as it was read
+    }
+
+    /**
+     * Writes given value and comment to output, value is split to cards with keyword CONTINUE if it is needed
+     * Output has to end with keyword section of first card (first VALUE_START_INDEX chars), all written cards are padded with spaces to full length
+     *
+     * @param output  output, where cards should be written
+     * @param value   escaped value without apostrophes around it
+     * @param comment comment of card, empty if card has no comment
+     * @return count of written cards with keyword CONTINUE
+     */
+    static int write(StringBuilder output, String value, String comment) {
+        int cardEnd = output.length() - VALUE_START_INDEX + FitsFile.CARD_LENGTH;
+        int valueStart = 0;
+        int commentStart = 0;
+        int countContinue = 0;
+        while (true) {
+            if (countContinue != 0) {
+                output.append(FitsFile.CONTINUE_CARD_PREFIX);
+            }
+            int valueLength = value.length() - valueStart + 2;
+            int commentLength = commentStart < comment.length() ? COMMENT_SEPARATOR.length() + comment.length() - commentStart : 0;
+            int maxLength = valueLength + commentLength;
+            if (maxLength <= CONTINUE_VALUE_LENGTH) {
+                output.append(LITERAL_MARK).append(value, valueStart, value.length()).append(LITERAL_MARK);
+                if (commentLength != 0) {
+                    output.append(COMMENT_SEPARATOR).append(comment, commentStart, comment.length());
+                }
+                finishCard(output, cardEnd);
+                return countContinue;
+            }
+            int partValueLength;
+            int partCommentLength = 0;
+            if (commentLength == 0) {
+                partValueLength = lastSpaceIndex(value, valueStart, CONTINUE_VALUE_LENGTH - VALUE_LENGTH_RESERVED - 1) + 1;
+                if (partValueLength == 0) {
+                    partValueLength = CONTINUE_VALUE_LENGTH - VALUE_LENGTH_RESERVED;
+                }
+            } else {
+                double ratioValue = ((double) (valueLength + 1)) / maxLength;
+                double ratioComment = ((double) commentLength) / maxLength;
+                int maxValueLength = (int) (ratioValue * CONTINUE_VALUE_LENGTH) - VALUE_LENGTH_RESERVED;
+                int maxCommentLength = (int) (ratioComment * CONTINUE_VALUE_LENGTH) - COMMENT_SEPARATOR.length();
+                if (maxValueLength < 0) { // apostrophes and & are written even for empty part of value
+                    maxCommentLength += maxValueLength;
+                    maxValueLength = 0;
+                }
+                partValueLength = lastSpaceIndex(value, valueStart, maxValueLength - 1) + 1; // This I want with last space
+                if (partValueLength == 0) {
+                    partValueLength = maxValueLength;
+                }
+                partCommentLength = lastSpaceIndex(comment, commentStart, maxCommentLength); // This I do not want with last space - I remove end trailing spaces
+                if (partCommentLength <= 0) {
+                    partCommentLength = Math.max(maxCommentLength, 0);
+                }
+            }
+            partValueLength = keepEscapedApostrophes(value, valueStart, partValueLength);
+            output.append(LITERAL_MARK).append(value, valueStart, valueStart + partValueLength).append(CONTINUED_VALUE_END_MARK).append(LITERAL_MARK);
+            valueStart += partValueLength;
+            if (partCommentLength != 0) {
+                output.append(COMMENT_SEPARATOR).append(comment, commentStart, commentStart + partCommentLength);
+                commentStart += partCommentLength;
+            }
+            finishCard(output, cardEnd);
+            cardEnd += FitsFile.CARD_LENGTH;
+            countContinue++;
+        }
+    }
+
+    /**
+     * Returns index of last space in part of given string, which starts at given index
+     *
+     * @param string    string to search
+     * @param start     index, where part starts
+     * @param fromIndex index in part, where search starts (backwards)
+     * @return index of last space in part (relative to start of part), -1 if part does not contain space
+     */
+    private static int lastSpaceIndex(String string, int start, int fromIndex) {
+        if (fromIndex < 0) {
+            return -1;
+        }
+        int index = string.lastIndexOf(' ', start + fromIndex);
+        return index < start ? -1 : index - start;
+    }
+
+    /**
+     * Returns length of part of escaped value, which does not split any escaped apostrophe ('') between two cards
+     *
+     * @param value  escaped value
+     * @param start  index, where part starts
+     * @param length desired length of part
+     * @return length of part, which does not split any escaped apostrophe
+     */
+    private static int keepEscapedApostrophes(String value, int start, int length) {
+        int countApostrophes = 0;
+        for (int i = start + length - 1; i >= start && value.charAt(i) == LITERAL_MARK; i--) {
+            countApostrophes++;
+        }
+        return countApostrophes % 2 == 0 ? length : length - 1;
+    }
+
+    /**
+     * Pads current card in output with spaces to its end (longer card is cut)
+     *
+     * @param output  output with cards
+     * @param cardEnd index in output, where current card ends
+     */
+    private static void finishCard(StringBuilder output, int cardEnd) {
+        if (output.length() > cardEnd) {
+            output.setLength(cardEnd);
+        }
+        while (output.length() < cardEnd) {
+            output.append(' ');
+        }
+    }
+}
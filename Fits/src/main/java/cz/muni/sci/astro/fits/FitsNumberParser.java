@@ -0,0 +1,216 @@
+package cz.muni.sci.astro.fits;
+
+/**
+ * Parses FITS numbers directly from records (integers of any length and reals with E or D exponent)
+ * Leading and trailing spaces and control characters of parsed range are ignored
+ *
+ * @author Jan Hlava, 395986
+ */
+final class FitsNumberParser {
+    private static final int MAX_EXACT_POWER_OF_TEN = 22;
+    private static final int MAX_MANTISSA_DIGITS = 18;
+    private static final long MAX_EXACT_MANTISSA = 1L << 53;
+    private static final int MAX_EXPONENT = 99999;
+    private static final double[] POWERS_OF_TEN = new double[MAX_EXACT_POWER_OF_TEN + 1];
+
+    static {
+        POWERS_OF_TEN[0] = 1.0;
+        for (int i = 1; i < POWERS_OF_TEN.length; i++) {
+            POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10.0;
+        }
+    }
+
+    /**
+     * Creates new instance (it is not possible to create instances of this class)
+     */
+    private FitsNumberParser() {
+    }
+
+    /**
+     * Returns data type of number in given range
+     *
+     * @param entry tokenizer set to the beginning of record
+     * @param from  begin of range
+     * @param to    end of range (exclusive)
+     * @return INT for integer, which fits into long, REAL for other numbers, null if range does not contain number
+     */
+    static FitsKeywordsDataType getType(FitsCardTokenizer entry, int from, int to) {
+        from = entry.trimStart(from, to);
+        to = entry.trimEnd(from, to);
+        int index = skipSign(entry, from, to);
+        int integerEnd = skipDigits(entry, index, to);
+        int countDigits = integerEnd - index;
+        index = integerEnd;
+        boolean integer = true;
+        if (index < to && entry.charAt(index) == '.') {
+            int fractionEnd = skipDigits(entry, index + 1, to);
+            countDigits += fractionEnd - index - 1;
+            index = fractionEnd;
+            integer = false;
+        }
+        if (countDigits == 0) {
+            return null;
+        }
+        if (index < to && isExponentMark(entry.charAt(index))) {
+            int exponentStart = skipSign(entry, index + 1, to);
+            index = skipDigits(entry, exponentStart, to);
+            if (index == exponentStart) {
+                return null;
+            }
+            integer = false;
+        }
+        if (index != to) {
+            return null;
+        }
+        if (integer && isInLongRange(entry, from, to)) {
+            return FitsKeywordsDataType.INT;
+        }
+        return FitsKeywordsDataType.REAL;
+    }
+
+    /**
+     * Returns integer in given range, range has to contain integer, which fits into long (see getType)
+     *
+     * @param entry tokenizer set to the beginning of record
+     * @param from  begin of range
+     * @param to    end of range (exclusive)
+     * @return integer in given range
+     */
+    static long parseLong(FitsCardTokenizer entry, int from, int to) {
+        from = entry.trimStart(from, to);
+        to = entry.trimEnd(from, to);
+        boolean negative = entry.charAt(from) == '-';
+        long value = 0;
+        for (int i = skipSign(entry, from, to); i < to; i++) {
+            value = value * 10 - (entry.charAt(i) - '0'); // accumulates negatively, so Long.MIN_VALUE can be parsed too
+        }
+        return negative ? value : -value;
+    }
+
+    /**
+     * Returns real number in given range, range has to contain number (see getType)
+     * Result is correctly rounded, common numbers are computed directly from digits, rest is passed to Double.parseDouble
+     *
+     * @param entry tokenizer set to the beginning of record
+     * @param from  begin of range
+     * @param to    end of range (exclusive)
+     * @return real number in given range
+     */
+    static double parseDouble(FitsCardTokenizer entry, int from, int to) {
+        from = entry.trimStart(from, to);
+        to = entry.trimEnd(from, to);
+        boolean negative = entry.charAt(from) == '-';
+        long mantissa = 0;
+        int countMantissaDigits = 0;
+        int exponent = 0;
+        boolean exact = true;
+        boolean fraction = false;
+        int index = skipSign(entry, from, to);
+        for (; index < to; index++) {
+            char ch = entry.charAt(index);
+            if (ch == '.') {
+                fraction = true;
+            } else if (ch >= '0' && ch <= '9') {
+                if (countMantissaDigits < MAX_MANTISSA_DIGITS) {
+                    mantissa = mantissa * 10 + (ch - '0');
+                    if (mantissa != 0) {
+                        countMantissaDigits++;
+                    }
+                    if (fraction) {
+                        exponent--;
+                    }
+                } else {
+                    if (ch != '0') {
+                        exact = false;
+                    }
+                    if (!fraction) {
+                        exponent++;
+                    }
+                }
+            } else {
+                break;
+            }
+        }
+        if (index < to) { // exponent
+            index++;
+            boolean negativeExponent = entry.charAt(index) == '-';
+            int explicitExponent = 0;
+            for (index = skipSign(entry, index, to); index < to; index++) {
+                explicitExponent = Math.min(explicitExponent * 10 + (entry.charAt(index) - '0'), MAX_EXPONENT);
+            }
+            exponent += negativeExponent ? -explicitExponent : explicitExponent;
+        }
+        double value;
+        if (mantissa == 0) {
+            value = 0.0;
+        } else if (exact && mantissa <= MAX_EXACT_MANTISSA && Math.abs(exponent) <= MAX_EXACT_POWER_OF_TEN) {
+            value = exponent >= 0 ? mantissa * POWERS_OF_TEN[exponent] : mantissa / POWERS_OF_TEN[-exponent];
+        } else {
+            return Double.parseDouble(entry.substring(from, to).replace('D', 'E').replace('d', 'e'));
+        }
+        return negative ? -value : value;
+    }
+
+    /**
+     * Checks if integer in given range fits into long
+     *
+     * @param entry tokenizer set to the beginning of record
+     * @param from  begin of integer (without leading spaces)
+     * @param to    end of integer (exclusive, without trailing spaces)
+     * @return true if integer fits into long, otherwise false
+     */
+    private static boolean isInLongRange(FitsCardTokenizer entry, int from, int to) {
+        boolean negative = entry.charAt(from) == '-';
+        long limit = negative ? Long.MIN_VALUE : -Long.MAX_VALUE;
+        long multiplyLimit = limit / 10;
+        long value = 0;
+        for (int i = skipSign(entry, from, to); i < to; i++) {
+            int digit = entry.charAt(i) - '0';
+            if (value < multiplyLimit || value * 10 < limit + digit) {
+                return false;
+            }
+            value = value * 10 - digit;
+        }
+        return true;
+    }
+
+    /**
+     * Returns index after optional sign
+     *
+     * @param entry tokenizer set to the beginning of record
+     * @param from  index, where sign can be
+     * @param to    end of range (exclusive)
+     * @return index after optional sign
+     */
+    private static int skipSign(FitsCardTokenizer entry, int from, int to) {
+        if (from < to && (entry.charAt(from) == '-' || entry.charAt(from) == '+')) {
+            return from + 1;
+        }
+        return from;
+    }
+
+    /**
+     * Returns index after sequence of digits
+     *
+     * @param entry tokenizer set to the beginning of record
+     * @param from  index, where sequence of digits starts
+     * @param to    end of range (exclusive)
+     * @return index of first character, which is not digit (or to)
+     */
+    private static int skipDigits(FitsCardTokenizer entry, int from, int to) {
+        while (from < to && entry.charAt(from) >= '0' && entry.charAt(from) <= '9') {
+            from++;
+        }
+        return from;
+    }
+
+    /**
+     * Checks if given character is mark of exponent (E or D, D is used for double precision)
+     *
+     * @param ch character to check
+     * @return true if given character is mark of exponent, otherwise false
+     */
+    private static boolean isExponentMark(char ch) {
+        return ch == 'E' || ch == 'e' || ch == 'D' || ch == 'd';
+    }
+}
@@ -0,0 +1,49 @@
+package cz.muni.sci.astro.fits;
+
+/**
+ * Enum definitions of strategies for saving FITS file, when some header was changed
+ *
+ * @author Jan Hlava, 395986
+ */
+public enum FitsSaveStrategy {
+    /**
+     * Headers are rewritten in place, if they do not fit their blocks, file is saved atomically (see ATOMIC)
+     * Atomic fallback needs free space for whole copy of file, but original file is never left half written (default strategy)
+     */
+    IN_PLACE("In place"),
+    /**
+     * Headers are rewritten in place, if they do not fit their blocks, data units are moved within original file (no space for copy of file is needed)
+     * There is no record of moving, so if moving fails, file is damaged and it cannot be recovered (see FitsFile.isDamaged), use it only if there is not enough space for copy of file
+     */
+    MOVE_DATA_UNITS("Moving data units"),
+    /**
+     * Headers are rewritten in place, original header blocks are stored in sidecar journal before, so file can be restored (see FitsFile.restoreHeaders)
+     * If headers do not fit their blocks, file is saved atomically (header blocks cannot restore moved data units)
+     */
+    JOURNALED("Journaled"),
+    /**
+     * Whole file is written to temporary file in same directory, forced to disk and then it atomically replaces original file
+     */
+    ATOMIC("Atomic");
+
+    private final String strategy;
+
+    /**
+     * Creates new instance of this enum with given strategy
+     *
+     * @param strategy name of strategy
+     */
+    FitsSaveStrategy(String strategy) {
+        this.strategy = strategy;
+    }
+
+    /**
+     * Returns string representation of enum
+     *
+     * @return string representation of enum
+     */
+    @Override
+    public String toString() {
+        return strategy;
+    }
+}